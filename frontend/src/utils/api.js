@@ -1,5 +1,14 @@
 const API_BASE = '/api'
 
+// crypto.randomUUID is only available in secure contexts (https / localhost)
+const newIdempotencyKey = () => {
+  if (typeof crypto.randomUUID === 'function') {
+    return crypto.randomUUID()
+  }
+  const bytes = crypto.getRandomValues(new Uint8Array(16))
+  return Array.from(bytes, b => b.toString(16).padStart(2, '0')).join('')
+}
+
 const formatDate = (dateStr) => {
   if (!dateStr) return ''
   const date = new Date(dateStr)
@@ -395,22 +404,29 @@ export const api = {
     return data.attemptId || null
   },
 
-  submitExam: async (examId, userId, answers, attemptId = null) => {
-    const res = await fetch(`${API_BASE}/exams/${examId}/submit?userId=${userId}${attemptId ? `&attemptId=${attemptId}` : ''}`, {
-      method: 'POST',
-      headers: { 'Content-Type': 'application/json' },
-      body: JSON.stringify({ answers })
-    })
-    const data = await res.json()
-    if (data.success) {
-      return {
-        totalScore: data.totalScore,
-        maxScore: data.maxScore,
-        percentage: data.percentage,
-        attemptId: data.attemptId || attemptId
+  submitExam: async (examId, userId, answers) => {
+    const idempotencyKey = newIdempotencyKey()
+    for (let retry = 0; ; retry++) {
+      const res = await fetch(`${API_BASE}/exams/${examId}/submit?userId=${userId}`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json', 'Idempotency-Key': idempotencyKey },
+        body: JSON.stringify({ answers })
+      })
+      const data = await res.json()
+      if ((res.status === 202 || res.status === 429) && retry < 5) {
+        await new Promise(resolve => setTimeout(resolve, (data.retryAfter || 2) * 1000))
+        continue
+      }
+      if (data.success) {
+        return {
+          totalScore: data.totalScore,
+          maxScore: data.maxScore,
+          percentage: data.percentage,
+          attemptId: data.attemptId
+        }
       }
+      throw new Error(data.message || '提交考试失败')
     }
-    throw new Error(data.message || '提交考试失败')
   },
 
   getReviewExams: async (userId, limit = 5) => {
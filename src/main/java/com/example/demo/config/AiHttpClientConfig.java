@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class AiHttpClientConfig {
+
+    @Value("${deepseek.http.connect-timeout-ms:10000}")
+    private long connectTimeoutMs;
+
+    @Value("${deepseek.http.read-timeout-ms:300000}")
+    private long readTimeoutMs;
+
+    @Bean
+    public HttpClient aiHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Bean
+    public AiHttpMetrics aiHttpMetrics() {
+        return new AiHttpMetrics();
+    }
+
+    @Bean
+    public RestTemplate aiRestTemplate(HttpClient aiHttpClient, AiHttpMetrics aiHttpMetrics) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(aiHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(aiHttpMetrics);
+        return restTemplate;
+    }
+}
+
@@ -0,0 +1,53 @@
+package com.example.demo.config;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AiHttpMetrics implements ClientHttpRequestInterceptor {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalHeaderNanos = new LongAdder();
+    private final AtomicLong maxHeaderNanos = new AtomicLong();
+    private final AtomicLong lastHeaderNanos = new AtomicLong();
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            record(System.nanoTime() - start);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    private void record(long nanos) {
+        requests.increment();
+        totalHeaderNanos.add(nanos);
+        lastHeaderNanos.set(nanos);
+        maxHeaderNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Map<String, Object> snapshot() {
+        long count = requests.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("requests", count);
+        stats.put("failures", failures.sum());
+        stats.put("avgTimeToHeadersMs", count > 0 ? totalHeaderNanos.sum() / count / 1_000_000.0 : 0.0);
+        stats.put("maxTimeToHeadersMs", maxHeaderNanos.get() / 1_000_000.0);
+        stats.put("lastTimeToHeadersMs", lastHeaderNanos.get() / 1_000_000.0);
+        return stats;
+    }
+}
+
@@ -1,89 +1,109 @@
 package com.example.demo.controller;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
-import org.springframework.http.HttpEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.example.demo.service.AiGateway;
+import com.example.demo.service.DocumentTextExtractor;
+import com.example.demo.service.GeneratedExamCache;
+import com.example.demo.service.NoteChunker;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api/ai")
 public class AiController {
 
+    private static final String EXAM_PROMPT_VERSION = "exam-v1";
+
+    @Autowired
+    private AiGateway aiGateway;
+
     @Autowired
-    private Environment environment; 
-    
-    private String deepseekApiKey;
+    private GeneratedExamCache generatedExamCache;
+
+    @Autowired
+    private DocumentTextExtractor documentTextExtractor;
+
+    @Value("${ai.note.chunk-chars:12000}")
+    private int noteChunkChars;
 
-    @Autowired(required = false)
-    private RestTemplate restTemplate;
+    @Value("${ai.note.map-max-tokens:2048}")
+    private int noteMapMaxTokens;
+
+    @Value("${ai.note.merge-fan-in:12}")
+    private int noteMergeFanIn;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public AiController() {
-        if (restTemplate == null) {
-            this.restTemplate = new RestTemplate();
-        }
+    @Autowired
+    private HttpClient aiHttpClient;
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        Map<String, Object> stats = aiGateway.stats();
+        stats.put("examCache", generatedExamCache.stats());
+        stats.put("extractCache", documentTextExtractor.stats());
+        response.put("data", stats);
+        return ResponseEntity.ok(response);
     }
 
-    private String getDeepseekApiKey() {
-        if (deepseekApiKey == null) {
-            
-            if (environment != null) {
-                deepseekApiKey = environment.getProperty("deepseek.api.key");
-                
-                if (deepseekApiKey == null || deepseekApiKey.trim().isEmpty()) {
-                    deepseekApiKey = environment.getProperty("DEEPSEEK_API_KEY");
-                }
-            }
-
-            if (deepseekApiKey == null || deepseekApiKey.trim().isEmpty()) {
-                deepseekApiKey = System.getProperty("deepseek.api.key");
-            }
-            if (deepseekApiKey == null || deepseekApiKey.trim().isEmpty()) {
-                deepseekApiKey = System.getProperty("DEEPSEEK_API_KEY");
-            }
+    @PostMapping("/chat")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> chat(@RequestBody Map<String, Object> request) {
+        return dispatch(() -> doChat(request));
+    }
 
-            if (deepseekApiKey == null || deepseekApiKey.trim().isEmpty()) {
-                deepseekApiKey = System.getenv("DEEPSEEK_API_KEY");
-            }
-            if (deepseekApiKey == null || deepseekApiKey.trim().isEmpty()) {
-                deepseekApiKey = System.getenv("deepseek.api.key");
-            }
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> dispatch(Callable<ResponseEntity<Map<String, Object>>> task) {
+        try {
+            return aiGateway.submit(task);
+        } catch (AiGateway.AiBusyException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("retryAfter", e.getRetryAfterSeconds());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(error));
         }
-        return deepseekApiKey;
     }
 
-    @PostMapping("/chat")
-    public ResponseEntity<Map<String, Object>> chat(@RequestBody Map<String, Object> request) {
+    private ResponseEntity<Map<String, Object>> doChat(Map<String, Object> request) {
         try {
             
-            String apiKey = getDeepseekApiKey();
-            if (apiKey == null || apiKey.trim().isEmpty()) {
+            if (!aiGateway.hasApiKey()) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("error", "DeepSeek API Key 未配置。请在 application.properties 中设置 deepseek.api.key，或设置环境变量 DEEPSEEK_API_KEY");
                 return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
@@ -98,42 +118,7 @@ public class AiController {
                 return ResponseEntity.badRequest().body(error);
             }
 
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "deepseek-chat");
-            payload.put("messages", messages);
-            payload.put("max_tokens", 4096);
-            payload.put("temperature", 0.7);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    "https://api.deepseek.com/v1/chat/completions",
-                    entity,
-                    Map.class
-            );
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> body = response.getBody();
-            if (body == null) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "AI 接口返回为空");
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
-            }
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) body.get("choices");
-            if (choices == null || choices.isEmpty()) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "AI 返回格式异常");
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
-            }
-
-            @SuppressWarnings("unchecked")
-            Map<String, String> message = (Map<String, String>) choices.get(0).get("message");
-            String content = message.get("content");
+            String content = aiGateway.complete(messages, 4096, 0.7);
 
             Map<String, Object> result = new HashMap<>();
             result.put("content", content);
@@ -154,26 +139,255 @@ public class AiController {
         }
     }
 
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody Map<String, Object> request) {
+        SseEmitter emitter = new SseEmitter(300000L);
+
+        if (!aiGateway.hasApiKey()) {
+            sendErrorAndComplete(emitter, "DeepSeek API Key 未配置。请在 application.properties 中设置 deepseek.api.key，或设置环境变量 DEEPSEEK_API_KEY");
+            return emitter;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> messages = (List<Map<String, String>>) request.get("messages");
+        if (messages == null || messages.isEmpty()) {
+            sendErrorAndComplete(emitter, "请求格式错误：需要 messages 数组");
+            return emitter;
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("model", "deepseek-chat");
+        payload.put("messages", messages);
+        payload.put("max_tokens", 4096);
+        payload.put("temperature", 0.7);
+        payload.put("stream", true);
+
+        HttpRequest httpRequest;
+        try {
+            httpRequest = HttpRequest.newBuilder(URI.create(aiGateway.getChatCompletionsUrl()))
+                    .timeout(Duration.ofSeconds(300))
+                    .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                    .header("Accept", MediaType.TEXT_EVENT_STREAM_VALUE)
+                    .header("Authorization", "Bearer " + aiGateway.getApiKey())
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(payload)))
+                    .build();
+        } catch (IOException e) {
+            sendErrorAndComplete(emitter, "AI 接口请求失败：" + e.getMessage());
+            return emitter;
+        }
+
+        if (!aiGateway.isAvailable()) {
+            sendErrorAndComplete(emitter, "AI 服务暂时不可用，请稍后重试");
+            return emitter;
+        }
+
+        if (!aiGateway.tryOpenStream()) {
+            sendErrorAndComplete(emitter, "AI 服务繁忙，请稍后重试");
+            return emitter;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        ChatStreamSubscriber subscriber = new ChatStreamSubscriber(emitter, () -> {
+            if (released.compareAndSet(false, true)) {
+                aiGateway.closeStream();
+            }
+        });
+        CompletableFuture<HttpResponse<Void>> future = aiHttpClient.sendAsync(httpRequest, info -> {
+            if (info.statusCode() == 401) {
+                subscriber.fail("DeepSeek API Key 无效或已过期。请检查配置的 API Key 是否正确。");
+                return HttpResponse.BodySubscribers.discarding();
+            }
+            if (info.statusCode() != 200) {
+                subscriber.fail("AI 接口请求失败：HTTP " + info.statusCode());
+                return HttpResponse.BodySubscribers.discarding();
+            }
+            return HttpResponse.BodySubscribers.fromLineSubscriber(subscriber);
+        });
+        future.whenComplete((response, error) -> {
+            if (error != null) {
+                subscriber.fail("AI 接口请求失败：" + error.getMessage());
+            }
+        });
+
+        Runnable cancel = () -> {
+            subscriber.cancel();
+            future.cancel(true);
+        };
+        emitter.onCompletion(cancel);
+        emitter.onTimeout(cancel);
+        emitter.onError(e -> cancel.run());
+        return emitter;
+    }
+
+    private void sendErrorAndComplete(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("error", message)));
+        } catch (IOException ignored) {
+        }
+        emitter.complete();
+    }
+
+    private final class ChatStreamSubscriber implements Flow.Subscriber<String> {
+        private final SseEmitter emitter;
+        private final Runnable release;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile Flow.Subscription subscription;
+
+        // release frees the stream slot; an emitter completed before MVC initializes it never runs onCompletion
+        private ChatStreamSubscriber(SseEmitter emitter, Runnable release) {
+            this.emitter = emitter;
+            this.release = release;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (finished.get()) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (finished.get()) {
+                return;
+            }
+            try {
+                if (line.startsWith("data:")) {
+                    String data = line.substring(5).trim();
+                    if ("[DONE]".equals(data)) {
+                        finish();
+                        return;
+                    }
+                    String content;
+                    try {
+                        content = extractDelta(data);
+                    } catch (JsonProcessingException | ClassCastException e) {
+                        fail("AI 接口请求失败：响应数据格式错误");
+                        return;
+                    }
+                    if (content != null && !content.isEmpty()) {
+                        emitter.send(SseEmitter.event().name("delta").data(Map.of("content", content)));
+                    }
+                }
+                subscription.request(1);
+            } catch (IOException e) {
+                cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail("AI 接口请求失败：" + throwable.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+            finish();
+        }
+
+        private String extractDelta(String data) throws JsonProcessingException {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> chunk = objectMapper.readValue(data, Map.class);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> choices = (List<Map<String, Object>>) chunk.get("choices");
+            if (choices == null || choices.isEmpty()) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> delta = (Map<String, Object>) choices.get(0).get("delta");
+            return delta != null ? (String) delta.get("content") : null;
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                try {
+                    emitter.send(SseEmitter.event().name("done").data("[DONE]"));
+                    emitter.complete();
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+                cancelSubscription();
+            }
+        }
+
+        private void fail(String message) {
+            if (finished.compareAndSet(false, true)) {
+                sendErrorAndComplete(emitter, message);
+                cancelSubscription();
+            }
+        }
+
+        private void cancel() {
+            finished.set(true);
+            cancelSubscription();
+        }
+
+        private void cancelSubscription() {
+            release.run();
+            Flow.Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+    }
+
     @PostMapping(value = "/generate-note", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> generateNote(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> generateNote(
             @RequestParam("files") MultipartFile[] files,
             @RequestParam(value = "noteName", required = false) String noteName,
             @RequestParam(value = "subjectName", required = false) String subjectName) {
-        
-        try {
-            if (files == null || files.length == 0) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "请上传至少一个文件");
-                return ResponseEntity.badRequest().body(error);
+        if (files == null || files.length == 0) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "请上传至少一个文件");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
+        }
+
+        List<String> filenames = new ArrayList<>(files.length);
+        List<Path> spooled = new ArrayList<>(files.length);
+        for (MultipartFile file : files) {
+            filenames.add(file.getOriginalFilename());
+            Path temp = null;
+            try {
+                temp = Files.createTempFile("revai-upload-", ".tmp");
+                file.transferTo(temp);
+                spooled.add(temp);
+            } catch (IOException e) {
+                deleteQuietly(temp != null ? List.of(temp) : List.of());
+                spooled.add(null);
             }
+        }
+        CompletableFuture<ResponseEntity<Map<String, Object>>> future =
+                dispatch(() -> doGenerateNote(filenames, spooled, noteName, subjectName));
+        future.whenComplete((response, error) -> deleteQuietly(spooled));
+        return future;
+    }
 
-            List<String> contentList = new ArrayList<>();
-            for (MultipartFile file : files) {
+    private void deleteQuietly(List<Path> paths) {
+        for (Path path : paths) {
+            if (path != null) {
                 try {
-                    String content = readFileContent(file.getBytes(), file.getOriginalFilename());
-                    contentList.add("--- 文件: " + file.getOriginalFilename() + " ---\n" + content);
-                } catch (Exception e) {
-                    contentList.add("--- 文件: " + file.getOriginalFilename() + " ---\n[读取失败: " + e.getMessage() + "]");
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> doGenerateNote(
+            List<String> filenames, List<Path> files, String noteName, String subjectName) {
+        try {
+            List<DocumentTextExtractor.Extraction> extractions = documentTextExtractor.extractAll(files, filenames);
+            List<String> contentList = new ArrayList<>();
+            for (int i = 0; i < filenames.size(); i++) {
+                String filename = filenames.get(i);
+                DocumentTextExtractor.Extraction extraction = extractions.get(i);
+                if (extraction.error() == null) {
+                    contentList.add("--- 文件: " + filename + " ---\n" + extraction.text());
+                } else {
+                    contentList.add("--- 文件: " + filename + " ---\n[读取失败: " + extraction.error() + "]");
                 }
             }
 
@@ -185,55 +399,13 @@ public class AiController {
                 return ResponseEntity.badRequest().body(error);
             }
 
-            String systemPrompt = buildNoteSystemPrompt();
-            String userPrompt = buildNoteUserPrompt(subjectName, noteName, allContent);
-
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "deepseek-chat");
-            payload.put("messages", Arrays.asList(
-                    Map.of("role", "system", "content", systemPrompt),
-                    Map.of("role", "user", "content", userPrompt)
-            ));
-            payload.put("max_tokens", 8192);
-            payload.put("temperature", 0.3);
-
-            String apiKey = getDeepseekApiKey();
-            if (apiKey == null || apiKey.trim().isEmpty()) {
+            if (!aiGateway.hasApiKey()) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("error", "DeepSeek API Key 未配置。请在 application.properties 中设置 deepseek.api.key，或设置环境变量 DEEPSEEK_API_KEY");
                 return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
             }
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
 
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    "https://api.deepseek.com/v1/chat/completions",
-                    entity,
-                    Map.class
-            );
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> body = response.getBody();
-            if (body == null) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "AI 接口返回为空");
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
-            }
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) body.get("choices");
-            if (choices == null || choices.isEmpty()) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "AI 返回格式异常");
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
-            }
-
-            @SuppressWarnings("unchecked")
-            Map<String, String> message = (Map<String, String>) choices.get(0).get("message");
-            String noteContent = message.get("content");
+            String noteContent = generateNoteContent(subjectName, noteName, allContent);
 
             Map<String, Object> result = new HashMap<>();
             Map<String, Object> note = new HashMap<>();
@@ -260,10 +432,35 @@ public class AiController {
     }
 
     @PostMapping("/generate-exam")
-    public ResponseEntity<Map<String, Object>> generateExam(@RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> generateExam(@RequestBody Map<String, Object> request) {
+        int questionCount = request.get("questionCount") instanceof Number n ? n.intValue() : 8;
+        boolean bypassCache = Boolean.parseBoolean(String.valueOf(request.get("bypassCache")));
+        if (!bypassCache) {
+            try {
+                String noteContent = (String) request.get("noteContent");
+                if (noteContent != null && !noteContent.trim().isEmpty()) {
+                    @SuppressWarnings("unchecked")
+                    List<String> selectedTypes = (List<String>) request.getOrDefault("selectedTypes",
+                            Arrays.asList("single", "true-false", "open"));
+                    List<Map<String, Object>> cached = generatedExamCache.get(generatedExamCache.keyOf(
+                            EXAM_PROMPT_VERSION, noteContent, questionCount,
+                            (String) request.getOrDefault("difficulty", "medium"), selectedTypes));
+                    if (cached != null) {
+                        Map<String, Object> result = new HashMap<>();
+                        result.put("questions", cached);
+                        result.put("cached", true);
+                        return CompletableFuture.completedFuture(ResponseEntity.ok(result));
+                    }
+                }
+            } catch (ClassCastException ignored) {
+            }
+        }
+        return dispatch(() -> doGenerateExam(request, questionCount));
+    }
+
+    private ResponseEntity<Map<String, Object>> doGenerateExam(Map<String, Object> request, int questionCount) {
         try {
             String noteContent = (String) request.get("noteContent");
-            Integer questionCount = (Integer) request.getOrDefault("questionCount", 8);
             String difficulty = (String) request.getOrDefault("difficulty", "medium");
             @SuppressWarnings("unchecked")
             List<String> selectedTypes = (List<String>) request.getOrDefault("selectedTypes", 
@@ -278,52 +475,16 @@ public class AiController {
             String systemPrompt = buildExamSystemPrompt();
             String userPrompt = buildExamUserPrompt(noteContent, questionCount, difficulty, selectedTypes);
 
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", "deepseek-chat");
-            payload.put("messages", Arrays.asList(
-                    Map.of("role", "system", "content", systemPrompt),
-                    Map.of("role", "user", "content", userPrompt)
-            ));
-            payload.put("max_tokens", 4096);
-            payload.put("temperature", 0.4);
-
-            String apiKey = getDeepseekApiKey();
-            if (apiKey == null || apiKey.trim().isEmpty()) {
+            if (!aiGateway.hasApiKey()) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("error", "DeepSeek API Key 未配置。请在 application.properties 中设置 deepseek.api.key，或设置环境变量 DEEPSEEK_API_KEY");
                 return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
             }
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    "https://api.deepseek.com/v1/chat/completions",
-                    entity,
-                    Map.class
-            );
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> body = response.getBody();
-            if (body == null) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "AI 接口返回为空");
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
-            }
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) body.get("choices");
-            if (choices == null || choices.isEmpty()) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "AI 返回格式异常");
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
-            }
 
-            @SuppressWarnings("unchecked")
-            Map<String, String> message = (Map<String, String>) choices.get(0).get("message");
-            String raw = message.get("content");
+            String raw = aiGateway.complete(Arrays.asList(
+                    Map.of("role", "system", "content", systemPrompt),
+                    Map.of("role", "user", "content", userPrompt)
+            ), 4096, 0.4);
 
             String cleaned = raw.trim();
             if (cleaned.startsWith("```")) {
@@ -344,8 +505,12 @@ public class AiController {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
             }
 
+            generatedExamCache.put(generatedExamCache.keyOf(
+                    EXAM_PROMPT_VERSION, noteContent, questionCount, difficulty, selectedTypes), parsed.get("questions"));
+
             Map<String, Object> result = new HashMap<>();
             result.put("questions", parsed.get("questions"));
+            result.put("cached", false);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -354,36 +519,40 @@ public class AiController {
         }
     }
 
-    private String readFileContent(byte[] bytes, String filename) throws IOException {
-        if (filename == null) {
-            return "";
+    private String generateNoteContent(String subjectName, String noteName, String allContent) {
+        List<String> chunks = NoteChunker.split(allContent, noteChunkChars);
+        if (chunks.size() <= 1) {
+            return aiGateway.complete(Arrays.asList(
+                    Map.of("role", "system", "content", buildNoteSystemPrompt()),
+                    Map.of("role", "user", "content", buildNoteUserPrompt(subjectName, noteName, allContent.replace(NoteChunker.PAGE_BREAK, '\n')))
+            ), 8192, 0.3);
         }
-        String lowerName = filename.toLowerCase();
-        
-        if (lowerName.endsWith(".txt") || lowerName.endsWith(".md")) {
-            return new String(bytes, StandardCharsets.UTF_8);
+
+        List<List<Map<String, String>>> mapRequests = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            mapRequests.add(Arrays.asList(
+                    Map.of("role", "system", "content", buildNoteChunkSystemPrompt()),
+                    Map.of("role", "user", "content", buildNoteChunkUserPrompt(subjectName, noteName, i + 1, chunks.size(), chunks.get(i)))
+            ));
         }
-        
-        if (lowerName.endsWith(".pdf")) {
-            try (PDDocument document = Loader.loadPDF(bytes)) {
-                PDFTextStripper stripper = new PDFTextStripper();
-                return stripper.getText(document);
+        List<String> partials = aiGateway.completeAll(mapRequests, noteMapMaxTokens, 0.3);
+
+        while (partials.size() > noteMergeFanIn) {
+            List<List<Map<String, String>>> reduceRequests = new ArrayList<>();
+            for (int from = 0; from < partials.size(); from += noteMergeFanIn) {
+                List<String> group = partials.subList(from, Math.min(from + noteMergeFanIn, partials.size()));
+                reduceRequests.add(Arrays.asList(
+                        Map.of("role", "system", "content", buildNoteChunkSystemPrompt()),
+                        Map.of("role", "user", "content", buildNoteMergeUserPrompt(subjectName, noteName, group))
+                ));
             }
+            partials = aiGateway.completeAll(reduceRequests, noteMapMaxTokens, 0.3);
         }
-        
-        if (lowerName.endsWith(".ppt") || lowerName.endsWith(".pptx")) {
-            return "[PPT 文件暂未能正确解析，请优先尝试将 PPT 导出为 PDF 或 TXT 上传。]";
-        }
-        
-        if (lowerName.endsWith(".jpg") || lowerName.endsWith(".jpeg") || lowerName.endsWith(".png")) {
-            return "[图片文件，暂不支持自动提取文字，请手动输入关键内容]";
-        }
-        
-        if (lowerName.endsWith(".doc") || lowerName.endsWith(".docx")) {
-            return "[Word 文件，建议转为 PDF 或 TXT 格式上传]";
-        }
-        
-        return "";
+
+        return aiGateway.complete(Arrays.asList(
+                Map.of("role", "system", "content", buildNoteSystemPrompt()),
+                Map.of("role", "user", "content", buildNoteMergeUserPrompt(subjectName, noteName, partials))
+        ), 8192, 0.3);
     }
 
     private String buildNoteSystemPrompt() {
@@ -429,6 +598,39 @@ public class AiController {
                 "Make sure all important concepts are included, and explain each important point clearly (around 3–6 sentences), so that a student can review and understand the topic using these notes alone.";
     }
 
+    private String buildNoteChunkSystemPrompt() {
+        return "You are a professional study assistant. You are given ONE PART of a larger set of study materials.\n\n" +
+                "Extract detailed partial study notes for this part only:\n" +
+                "- Keep ALL key concepts, definitions, theorems, formulas, dates and names that appear in this part.\n" +
+                "- Preserve the original section / heading structure using Markdown (## and ###).\n" +
+                "- Explain each important concept in 2–4 sentences; keep examples short.\n" +
+                "- Do NOT add an introduction, conclusion or \"Key Takeaways\" section — other parts will be merged later.\n" +
+                "- Write in the same language as the source material. Use Markdown only, no meta comments.";
+    }
+
+    private String buildNoteChunkUserPrompt(String subjectName, String noteName, int part, int totalParts, String chunk) {
+        return "Subject: " + (subjectName != null ? subjectName : "General") + "\n" +
+                "Topic: " + (noteName != null ? noteName : "Study Notes") + "\n" +
+                "Part " + part + " of " + totalParts + "\n\n" +
+                "=== SOURCE MATERIALS (PART " + part + ") ===\n" +
+                chunk + "\n" +
+                "=== END OF PART ===";
+    }
+
+    private String buildNoteMergeUserPrompt(String subjectName, String noteName, List<String> partials) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("The following are partial study notes generated from consecutive parts of the same materials, in order.\n")
+                .append("Merge them into ONE coherent set of notes: remove duplicates, keep every key concept, ")
+                .append("and organize the result with a single consistent heading hierarchy.\n\n")
+                .append("Subject: ").append(subjectName != null ? subjectName : "General").append("\n")
+                .append("Topic: ").append(noteName != null ? noteName : "Study Notes").append("\n\n");
+        for (int i = 0; i < partials.size(); i++) {
+            sb.append("=== PARTIAL NOTES ").append(i + 1).append(" ===\n").append(partials.get(i)).append("\n\n");
+        }
+        sb.append("=== END OF PARTIAL NOTES ===");
+        return sb.toString();
+    }
+
     private String buildExamSystemPrompt() {
         return "You are an experienced exam designer. Based on the given study notes, " +
                 "you will create a high-quality exam that checks real understanding.\n\n" +
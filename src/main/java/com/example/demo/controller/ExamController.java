@@ -1,15 +1,26 @@
 package com.example.demo.controller;
 
 import com.example.demo.entity.Exam;
+import com.example.demo.entity.ExamSubmission;
 import com.example.demo.entity.Question;
 import com.example.demo.service.ExamService;
+import com.example.demo.service.SubmissionQueue;
+import com.fasterxml.jackson.databind.util.RawValue;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/exams")
@@ -21,6 +32,9 @@ public class ExamController {
     @Autowired
     private com.example.demo.controller.AiController aiController;
 
+    @Autowired
+    private SubmissionQueue submissionQueue;
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> getExamByNoteId(
             @RequestParam Long noteId,
@@ -53,6 +67,14 @@ public class ExamController {
         }
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", examService.getQuestionCacheStats());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> getExamById(@PathVariable Long id) {
         Map<String, Object> response = new HashMap<>();
@@ -74,7 +96,7 @@ public class ExamController {
     }
 
     @PostMapping("/generate")
-    public ResponseEntity<Map<String, Object>> generateExam(@RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> generateExam(@RequestBody Map<String, Object> request) {
         Map<String, Object> response = new HashMap<>();
         try {
             Long noteId = Long.valueOf(request.get("noteId").toString());
@@ -87,7 +109,7 @@ public class ExamController {
             if (noteContent == null || noteContent.trim().isEmpty()) {
                 response.put("success", false);
                 response.put("message", "笔记内容不能为空");
-                return ResponseEntity.badRequest().body(response);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
             }
 
             Map<String, Object> aiRequest = new HashMap<>();
@@ -96,40 +118,49 @@ public class ExamController {
             aiRequest.put("difficulty", difficulty);
             aiRequest.put("selectedTypes", request.getOrDefault("selectedTypes", 
                     java.util.Arrays.asList("single", "true-false", "open")));
+            aiRequest.put("bypassCache", request.get("bypassCache"));
 
-            ResponseEntity<Map<String, Object>> aiResponse = aiController.generateExam(aiRequest);
-            
-            if (!aiResponse.getStatusCode().is2xxSuccessful()) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> aiBody = (Map<String, Object>) aiResponse.getBody();
-                response.put("success", false);
-                response.put("message", aiBody != null ? aiBody.get("error") : "AI生成失败");
-                return ResponseEntity.badRequest().body(response);
-            }
+            return aiController.generateExam(aiRequest).thenApply(aiResponse -> {
+                try {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> aiBody = (Map<String, Object>) aiResponse.getBody();
+                    if (aiResponse.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                        return retryLater(response, String.valueOf(aiBody.get("error")),
+                                ((Number) aiBody.get("retryAfter")).intValue());
+                    }
+                    if (!aiResponse.getStatusCode().is2xxSuccessful()) {
+                        response.put("success", false);
+                        response.put("message", aiBody != null ? aiBody.get("error") : "AI生成失败");
+                        return ResponseEntity.badRequest().body(response);
+                    }
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> aiBody = (Map<String, Object>) aiResponse.getBody();
-            if (aiBody == null || !aiBody.containsKey("questions")) {
-                response.put("success", false);
-                response.put("message", "AI未返回任何题目");
-                return ResponseEntity.badRequest().body(response);
-            }
-            
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> aiQuestions = (List<Map<String, Object>>) aiBody.get("questions");
+                    if (aiBody == null || !aiBody.containsKey("questions")) {
+                        response.put("success", false);
+                        response.put("message", "AI未返回任何题目");
+                        return ResponseEntity.badRequest().body(response);
+                    }
+                    
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, Object>> aiQuestions = (List<Map<String, Object>>) aiBody.get("questions");
 
-            Exam exam = examService.createExamFromAI(noteId, userId, noteContent, questionCount, difficulty, aiQuestions, examName);
+                    Exam exam = examService.createExamFromAI(noteId, userId, noteContent, questionCount, difficulty, aiQuestions, examName);
 
-            List<Map<String, Object>> formattedQuestions = formatQuestionsForFrontend(exam.getQuestions(), aiQuestions);
+                    List<Map<String, Object>> formattedQuestions = formatQuestionsForFrontend(exam.getQuestions(), aiQuestions);
 
-            response.put("success", true);
-            response.put("data", exam);
-            response.put("questions", formattedQuestions);
-            return ResponseEntity.ok(response);
+                    response.put("success", true);
+                    response.put("data", exam);
+                    response.put("questions", formattedQuestions);
+                    return ResponseEntity.ok(response);
+                } catch (Exception e) {
+                    response.put("success", false);
+                    response.put("message", e.getMessage());
+                    return ResponseEntity.badRequest().body(response);
+                }
+            });
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
         }
     }
 
@@ -152,9 +183,21 @@ public class ExamController {
     @GetMapping("/{examId}/attempts")
     public ResponseEntity<Map<String, Object>> getExamAttempts(
             @PathVariable Long examId,
-            @RequestParam Long userId) {
+            @RequestParam Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean summary) {
         Map<String, Object> response = new HashMap<>();
         try {
+            if (cursor != null || limit != null || summary) {
+                Map<String, Object> page = examService.getExamAttemptsPage(
+                        examId, userId, cursor, limit != null ? limit : 20, summary);
+                response.put("success", true);
+                response.put("data", page.get("items"));
+                response.put("hasMore", page.get("hasMore"));
+                response.put("nextCursor", page.get("nextCursor"));
+                return ResponseEntity.ok(response);
+            }
             List<Map<String, Object>> attempts = examService.getExamAttempts(examId, userId);
             response.put("success", true);
             response.put("data", attempts);
@@ -166,6 +209,34 @@ public class ExamController {
         }
     }
 
+    @GetMapping("/{examId}/statistics")
+    public ResponseEntity<Map<String, Object>> getExamStatistics(@PathVariable Long examId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", examService.getExamStatistics(examId));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/{examId}/item-analysis")
+    public ResponseEntity<Map<String, Object>> getItemAnalysis(@PathVariable Long examId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", examService.getItemAnalysis(examId));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     @PostMapping("/{examId}/answers")
     public ResponseEntity<Map<String, Object>> saveAnswers(
             @PathVariable Long examId,
@@ -198,9 +269,20 @@ public class ExamController {
     public ResponseEntity<Map<String, Object>> getAnswers(
             @PathVariable Long examId,
             @RequestParam Long userId,
-            @RequestParam(required = false) Long attemptId) {
+            @RequestParam(required = false) Long attemptId,
+            @RequestParam(required = false) Long afterQuestionId,
+            @RequestParam(required = false) Integer limit) {
         Map<String, Object> response = new HashMap<>();
         try {
+            if (afterQuestionId != null || limit != null) {
+                Map<String, Object> page = examService.getExamAnswersPage(
+                        examId, userId, attemptId, afterQuestionId, limit != null ? limit : 50);
+                response.put("success", true);
+                response.put("data", page.get("items"));
+                response.put("hasMore", page.get("hasMore"));
+                response.put("nextCursor", page.get("nextCursor"));
+                return ResponseEntity.ok(response);
+            }
             List<com.example.demo.entity.ExamAnswer> answers = examService.getExamAnswers(examId, userId, attemptId);
             response.put("success", true);
             response.put("data", answers);
@@ -213,10 +295,10 @@ public class ExamController {
     }
 
     @PostMapping("/{examId}/submit")
-    public ResponseEntity<Map<String, Object>> submitExam(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> submitExam(
             @PathVariable Long examId,
             @RequestParam Long userId,
-            @RequestParam(required = false) Long attemptId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody Map<String, Object> request) {
         Map<String, Object> response = new HashMap<>();
         try {
@@ -226,18 +308,141 @@ public class ExamController {
             for (Map.Entry<String, String> entry : answersMap.entrySet()) {
                 answers.put(Long.valueOf(entry.getKey()), entry.getValue());
             }
-            
-            Map<String, Object> result = examService.submitExam(examId, userId, answers, attemptId);
-            response.put("success", true);
-            response.putAll(result);
-            return ResponseEntity.ok(response);
+            if (idempotencyKey == null && request.get("idempotencyKey") != null) {
+                idempotencyKey = request.get("idempotencyKey").toString();
+            }
+            if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > 64)) {
+                response.put("success", false);
+                response.put("message", "幂等键长度必须在1到64之间");
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
+            }
+            if (idempotencyKey == null) {
+                idempotencyKey = UUID.randomUUID().toString();
+            }
+            String key = idempotencyKey;
+
+            return submissionQueue.submit(new ExamSubmission(examId, userId, answers, key))
+                    .orTimeout(submissionQueue.getWaitTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .handle((result, error) -> {
+                        response.put("idempotencyKey", key);
+                        if (error == null) {
+                            response.put("success", true);
+                            response.putAll(result);
+                            return ResponseEntity.ok(response);
+                        }
+                        Throwable cause = unwrap(error);
+                        if (cause instanceof TimeoutException) {
+                            response.put("success", false);
+                            response.put("processing", true);
+                            response.put("message", "提交仍在处理中，请使用相同的幂等键重试以获取结果");
+                            response.put("retryAfter", submissionQueue.getRetryAfterSeconds());
+                            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(submissionQueue.getRetryAfterSeconds()))
+                                    .body(response);
+                        }
+                        response.put("success", false);
+                        response.put("message", cause.getMessage());
+                        return ResponseEntity.badRequest().body(response);
+                    });
+        } catch (SubmissionQueue.SubmissionRejectedException e) {
+            return CompletableFuture.completedFuture(retryLater(response, e.getMessage(), e.getRetryAfterSeconds()));
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
+        }
+    }
+
+    @PostMapping("/{examId}/submit/batch")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> submitExamBatch(
+            @PathVariable Long examId,
+            @RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> items = (List<Map<String, Object>>) request.get("submissions");
+            if (items == null || items.isEmpty()) {
+                response.put("success", false);
+                response.put("message", "submissions不能为空");
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
+            }
+
+            List<ExamSubmission> submissions = new ArrayList<>(items.size());
+            for (Map<String, Object> item : items) {
+                @SuppressWarnings("unchecked")
+                Map<String, String> answersMap = (Map<String, String>) item.get("answers");
+                Map<Long, String> answers = new HashMap<>();
+                if (answersMap != null) {
+                    for (Map.Entry<String, String> entry : answersMap.entrySet()) {
+                        answers.put(Long.valueOf(entry.getKey()), entry.getValue());
+                    }
+                }
+                Object key = item.get("idempotencyKey");
+                submissions.add(new ExamSubmission(examId, Long.valueOf(item.get("userId").toString()), answers,
+                        key != null ? key.toString() : UUID.randomUUID().toString()));
+            }
+
+            List<CompletableFuture<Map<String, Object>>> queued = submissionQueue.submitAll(submissions);
+            List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>(queued.size());
+            for (int i = 0; i < queued.size(); i++) {
+                String key = submissions.get(i).getIdempotencyKey();
+                futures.add(queued.get(i).orTimeout(submissionQueue.getWaitTimeoutMs(), TimeUnit.MILLISECONDS)
+                        .handle((result, error) -> {
+                            Map<String, Object> item = new HashMap<>();
+                            item.put("idempotencyKey", key);
+                            if (error == null) {
+                                item.putAll(result);
+                                item.put("success", true);
+                            } else if (unwrap(error) instanceof TimeoutException) {
+                                item.put("success", false);
+                                item.put("processing", true);
+                                item.put("message", "提交仍在处理中，请使用相同的幂等键重试以获取结果");
+                            } else {
+                                item.put("success", false);
+                                item.put("message", unwrap(error).getMessage());
+                            }
+                            return item;
+                        }));
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+                List<Map<String, Object>> results = new ArrayList<>(futures.size());
+                for (CompletableFuture<Map<String, Object>> future : futures) {
+                    results.add(future.join());
+                }
+                response.put("success", true);
+                response.put("data", results);
+                return ResponseEntity.ok(response);
+            });
+        } catch (SubmissionQueue.SubmissionRejectedException e) {
+            return CompletableFuture.completedFuture(retryLater(response, e.getMessage(), e.getRetryAfterSeconds()));
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
         }
     }
 
+    @GetMapping("/submissions/stats")
+    public ResponseEntity<Map<String, Object>> getSubmissionQueueStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", submissionQueue.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private ResponseEntity<Map<String, Object>> retryLater(Map<String, Object> response, String message, int retryAfterSeconds) {
+        response.put("success", false);
+        response.put("message", message);
+        response.put("retryAfter", retryAfterSeconds);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(response);
+    }
+
     @GetMapping("/review")
     public ResponseEntity<Map<String, Object>> getReviewExams(
             @RequestParam Long userId,
@@ -256,6 +461,23 @@ public class ExamController {
         }
     }
 
+    @GetMapping("/review/questions")
+    public ResponseEntity<Map<String, Object>> getDueQuestions(
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "true") boolean missedOnly) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", examService.getDueQuestions(userId, limit, missedOnly));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     private List<Map<String, Object>> formatQuestionsForFrontend(
             List<Question> questions, List<Map<String, Object>> aiQuestions) {
         List<Map<String, Object>> result = new java.util.ArrayList<>();
@@ -283,16 +505,8 @@ public class ExamController {
             formatted.put("correctAnswer", q.getCorrectAnswer());
             formatted.put("explanation", aiQ.getOrDefault("explanation", ""));
 
-            if (q.getOptions() != null && !q.getOptions().isEmpty()) {
-                List<Map<String, Object>> options = new java.util.ArrayList<>();
-                for (com.example.demo.entity.Option opt : q.getOptions()) {
-                    Map<String, Object> optionMap = new HashMap<>();
-                    optionMap.put("value", opt.getValue());
-                    optionMap.put("label", opt.getLabel());
-                    optionMap.put("text", opt.getText());
-                    options.add(optionMap);
-                }
-                formatted.put("options", options);
+            if (q.getOptionsJson() != null) {
+                formatted.put("options", new RawValue(q.getOptionsJson()));
             } else if ("true-false".equals(formatted.get("type"))) {
                 
                 List<Map<String, Object>> options = new java.util.ArrayList<>();
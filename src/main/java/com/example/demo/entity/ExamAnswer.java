@@ -7,8 +7,10 @@ public class ExamAnswer {
     private Long examId;
     private Long userId;
     private Long questionId;
+    private Long attemptId;
     private String answer; 
     private Integer score; 
+    private String gradingStatus;
     private LocalDateTime submitTime;
 
     public Long getId() {
@@ -43,6 +45,14 @@ public class ExamAnswer {
         this.questionId = questionId;
     }
 
+    public Long getAttemptId() {
+        return attemptId;
+    }
+
+    public void setAttemptId(Long attemptId) {
+        this.attemptId = attemptId;
+    }
+
     public String getAnswer() {
         return answer;
     }
@@ -59,6 +69,14 @@ public class ExamAnswer {
         this.score = score;
     }
 
+    public String getGradingStatus() {
+        return gradingStatus;
+    }
+
+    public void setGradingStatus(String gradingStatus) {
+        this.gradingStatus = gradingStatus;
+    }
+
     public LocalDateTime getSubmitTime() {
         return submitTime;
     }
@@ -2,6 +2,7 @@ package com.example.demo.entity;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class ExamAttempt {
     private Long id;
@@ -11,6 +12,8 @@ public class ExamAttempt {
     private Integer maxScore; 
     private BigDecimal percentage; 
     private LocalDateTime submitTime; 
+    private String idempotencyKey;
+    private List<ExamAnswer> answers;
 
     public Long getId() {
         return id;
@@ -67,5 +70,21 @@ public class ExamAttempt {
     public void setSubmitTime(LocalDateTime submitTime) {
         this.submitTime = submitTime;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public List<ExamAnswer> getAnswers() {
+        return answers;
+    }
+
+    public void setAnswers(List<ExamAnswer> answers) {
+        this.answers = answers;
+    }
 }
 
@@ -11,6 +11,11 @@ public class ExamSM2Stats {
     private Integer intervalDays; 
     private LocalDateTime lastReviewDate; 
     private LocalDateTime nextReviewDate; 
+    private Long lastAttemptId;
+    private BigDecimal lastPercentage;
+    private LocalDateTime lastSubmitTime;
+    private Integer attemptCount;
+    private Integer version;
 
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -32,5 +37,20 @@ public class ExamSM2Stats {
 
     public LocalDateTime getNextReviewDate() { return nextReviewDate; }
     public void setNextReviewDate(LocalDateTime nextReviewDate) { this.nextReviewDate = nextReviewDate; }
+
+    public Long getLastAttemptId() { return lastAttemptId; }
+    public void setLastAttemptId(Long lastAttemptId) { this.lastAttemptId = lastAttemptId; }
+
+    public BigDecimal getLastPercentage() { return lastPercentage; }
+    public void setLastPercentage(BigDecimal lastPercentage) { this.lastPercentage = lastPercentage; }
+
+    public LocalDateTime getLastSubmitTime() { return lastSubmitTime; }
+    public void setLastSubmitTime(LocalDateTime lastSubmitTime) { this.lastSubmitTime = lastSubmitTime; }
+
+    public Integer getAttemptCount() { return attemptCount; }
+    public void setAttemptCount(Integer attemptCount) { this.attemptCount = attemptCount; }
+
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
 }
 
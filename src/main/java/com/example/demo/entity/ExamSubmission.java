@@ -0,0 +1,33 @@
+package com.example.demo.entity;
+
+import java.util.Map;
+
+public class ExamSubmission {
+    private Long examId;
+    private Long userId;
+    private Map<Long, String> answers;
+    private String idempotencyKey;
+
+    public ExamSubmission() {
+    }
+
+    public ExamSubmission(Long examId, Long userId, Map<Long, String> answers, String idempotencyKey) {
+        this.examId = examId;
+        this.userId = userId;
+        this.answers = answers;
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public Long getExamId() { return examId; }
+    public void setExamId(Long examId) { this.examId = examId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Map<Long, String> getAnswers() { return answers; }
+    public void setAnswers(Map<Long, String> answers) { this.answers = answers; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+}
+
@@ -0,0 +1,33 @@
+package com.example.demo.entity;
+
+public class OpenAnswerTask {
+    private Long answerId;
+    private Long attemptId;
+    private Long questionId;
+    private String questionTitle;
+    private String referenceAnswer;
+    private Integer points;
+    private String answer;
+
+    public Long getAnswerId() { return answerId; }
+    public void setAnswerId(Long answerId) { this.answerId = answerId; }
+
+    public Long getAttemptId() { return attemptId; }
+    public void setAttemptId(Long attemptId) { this.attemptId = attemptId; }
+
+    public Long getQuestionId() { return questionId; }
+    public void setQuestionId(Long questionId) { this.questionId = questionId; }
+
+    public String getQuestionTitle() { return questionTitle; }
+    public void setQuestionTitle(String questionTitle) { this.questionTitle = questionTitle; }
+
+    public String getReferenceAnswer() { return referenceAnswer; }
+    public void setReferenceAnswer(String referenceAnswer) { this.referenceAnswer = referenceAnswer; }
+
+    public Integer getPoints() { return points; }
+    public void setPoints(Integer points) { this.points = points; }
+
+    public String getAnswer() { return answer; }
+    public void setAnswer(String answer) { this.answer = answer; }
+}
+
@@ -1,5 +1,9 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
 import java.util.List;
 
 public class Question {
@@ -53,10 +57,12 @@ public class Question {
         this.points = points;
     }
 
+    @JsonIgnore
     public List<Option> getOptions() {
         return options;
     }
 
+    @JsonIgnore
     public void setOptions(List<Option> options) {
         this.options = options;
     }
@@ -77,6 +83,8 @@ public class Question {
         this.explanation = explanation;
     }
 
+    @JsonProperty("options")
+    @JsonRawValue
     public String getOptionsJson() {
         return optionsJson;
     }
@@ -0,0 +1,33 @@
+package com.example.demo.entity;
+
+public class QuestionItemStats {
+    private Long questionId;
+    private Long examId;
+    private Integer responseCount;
+    private Integer correctCount;
+    private Double sumTotal;
+    private Double sumTotalSquares;
+    private Double sumTotalCorrect;
+
+    public Long getQuestionId() { return questionId; }
+    public void setQuestionId(Long questionId) { this.questionId = questionId; }
+
+    public Long getExamId() { return examId; }
+    public void setExamId(Long examId) { this.examId = examId; }
+
+    public Integer getResponseCount() { return responseCount; }
+    public void setResponseCount(Integer responseCount) { this.responseCount = responseCount; }
+
+    public Integer getCorrectCount() { return correctCount; }
+    public void setCorrectCount(Integer correctCount) { this.correctCount = correctCount; }
+
+    public Double getSumTotal() { return sumTotal; }
+    public void setSumTotal(Double sumTotal) { this.sumTotal = sumTotal; }
+
+    public Double getSumTotalSquares() { return sumTotalSquares; }
+    public void setSumTotalSquares(Double sumTotalSquares) { this.sumTotalSquares = sumTotalSquares; }
+
+    public Double getSumTotalCorrect() { return sumTotalCorrect; }
+    public void setSumTotalCorrect(Double sumTotalCorrect) { this.sumTotalCorrect = sumTotalCorrect; }
+}
+
@@ -0,0 +1,51 @@
+package com.example.demo.entity;
+
+import java.time.LocalDateTime;
+
+public class QuestionSM2Stats {
+    private Long id;
+    private Long userId;
+    private Long questionId;
+    private Long examId;
+    private Double easeFactor;
+    private Integer intervalDays;
+    private Integer lapseCount;
+    private Integer lastQuality;
+    private LocalDateTime lastReviewDate;
+    private LocalDateTime nextReviewDate;
+    private Question question;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getQuestionId() { return questionId; }
+    public void setQuestionId(Long questionId) { this.questionId = questionId; }
+
+    public Long getExamId() { return examId; }
+    public void setExamId(Long examId) { this.examId = examId; }
+
+    public Double getEaseFactor() { return easeFactor; }
+    public void setEaseFactor(Double easeFactor) { this.easeFactor = easeFactor; }
+
+    public Integer getIntervalDays() { return intervalDays; }
+    public void setIntervalDays(Integer intervalDays) { this.intervalDays = intervalDays; }
+
+    public Integer getLapseCount() { return lapseCount; }
+    public void setLapseCount(Integer lapseCount) { this.lapseCount = lapseCount; }
+
+    public Integer getLastQuality() { return lastQuality; }
+    public void setLastQuality(Integer lastQuality) { this.lastQuality = lastQuality; }
+
+    public LocalDateTime getLastReviewDate() { return lastReviewDate; }
+    public void setLastReviewDate(LocalDateTime lastReviewDate) { this.lastReviewDate = lastReviewDate; }
+
+    public LocalDateTime getNextReviewDate() { return nextReviewDate; }
+    public void setNextReviewDate(LocalDateTime nextReviewDate) { this.nextReviewDate = nextReviewDate; }
+
+    public Question getQuestion() { return question; }
+    public void setQuestion(Question question) { this.question = question; }
+}
+
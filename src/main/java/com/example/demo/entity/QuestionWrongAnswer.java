@@ -0,0 +1,21 @@
+package com.example.demo.entity;
+
+public class QuestionWrongAnswer {
+    private Long questionId;
+    private Long examId;
+    private String answer;
+    private Integer answerCount;
+
+    public Long getQuestionId() { return questionId; }
+    public void setQuestionId(Long questionId) { this.questionId = questionId; }
+
+    public Long getExamId() { return examId; }
+    public void setExamId(Long examId) { this.examId = examId; }
+
+    public String getAnswer() { return answer; }
+    public void setAnswer(String answer) { this.answer = answer; }
+
+    public Integer getAnswerCount() { return answerCount; }
+    public void setAnswerCount(Integer answerCount) { this.answerCount = answerCount; }
+}
+
@@ -0,0 +1,32 @@
+package com.example.demo.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class ReviewExam {
+    private Exam exam;
+    private Double priority;
+    private LocalDateTime lastSubmitTime;
+    private BigDecimal lastPercentage;
+    private Integer attemptCount;
+    private LocalDateTime nextReviewDate;
+
+    public Exam getExam() { return exam; }
+    public void setExam(Exam exam) { this.exam = exam; }
+
+    public Double getPriority() { return priority; }
+    public void setPriority(Double priority) { this.priority = priority; }
+
+    public LocalDateTime getLastSubmitTime() { return lastSubmitTime; }
+    public void setLastSubmitTime(LocalDateTime lastSubmitTime) { this.lastSubmitTime = lastSubmitTime; }
+
+    public BigDecimal getLastPercentage() { return lastPercentage; }
+    public void setLastPercentage(BigDecimal lastPercentage) { this.lastPercentage = lastPercentage; }
+
+    public Integer getAttemptCount() { return attemptCount; }
+    public void setAttemptCount(Integer attemptCount) { this.attemptCount = attemptCount; }
+
+    public LocalDateTime getNextReviewDate() { return nextReviewDate; }
+    public void setNextReviewDate(LocalDateTime nextReviewDate) { this.nextReviewDate = nextReviewDate; }
+}
+
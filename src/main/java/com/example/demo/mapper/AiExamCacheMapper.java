@@ -0,0 +1,13 @@
+package com.example.demo.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.Map;
+
+@Mapper
+public interface AiExamCacheMapper {
+    Map<String, Object> findValidByKey(String cacheKey);
+    int upsert(String cacheKey, String questions, long ttlSeconds);
+    int deleteExpired(int limit);
+}
+
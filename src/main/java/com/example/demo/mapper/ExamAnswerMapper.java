@@ -1,16 +1,28 @@
 package com.example.demo.mapper;
 
 import com.example.demo.entity.ExamAnswer;
+import com.example.demo.entity.OpenAnswerTask;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface ExamAnswerMapper {
     List<ExamAnswer> findByExamIdAndUserId(Long examId, Long userId);
     ExamAnswer findByExamIdAndUserIdAndQuestionId(Long examId, Long userId, Long questionId);
+    List<ExamAnswer> findByAttemptId(Long attemptId);
+    List<ExamAnswer> findByAttemptIds(Collection<Long> attemptIds);
+    List<ExamAnswer> findPageByAttemptId(Long attemptId, Long afterQuestionId, int limit);
+    List<ExamAnswer> findDraftsByExamIdAndUserId(Long examId, Long userId);
     int insert(ExamAnswer examAnswer);
+    int batchUpsert(List<ExamAnswer> answers);
     int update(ExamAnswer examAnswer);
+    List<OpenAnswerTask> findPendingOpenAnswers(Collection<Long> attemptIds);
+    List<Long> findPendingAttemptIds(Long afterAttemptId, int limit);
+    int batchUpdateGradedScores(List<ExamAnswer> answers);
+    int markGradingFailed(Collection<Long> attemptIds);
     int deleteByExamIdAndUserId(Long examId, Long userId);
+    int deleteDraftsByExamIdAndUserId(Long examId, Long userId, Collection<Long> questionIds);
 }
 
@@ -3,16 +3,21 @@ package com.example.demo.mapper;
 import com.example.demo.entity.ExamAttempt;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 @Mapper
 public interface ExamAttemptMapper {
     List<ExamAttempt> findByExamIdAndUserId(Long examId, Long userId);
+    List<ExamAttempt> findWithAnswersByExamIdAndUserId(Long examId, Long userId);
+    ExamAttempt findLatestByExamIdAndUserId(Long examId, Long userId);
+    List<ExamAttempt> findPageByExamIdAndUserId(Long examId, Long userId, LocalDateTime beforeTime, Long beforeId, int limit);
     ExamAttempt findById(Long id);
+    ExamAttempt findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
     int insert(ExamAttempt examAttempt);
+    int batchInsert(List<ExamAttempt> attempts);
     int update(ExamAttempt examAttempt);
+    int addGradedScore(Long id, int scoreDelta, int pointsDelta);
     int deleteByExamIdAndUserId(Long examId, Long userId);
-    List<Map<String, Object>> getReviewStatisticsByUserId(Long userId);
 }
 
@@ -8,6 +8,8 @@ import java.util.List;
 @Mapper
 public interface ExamMapper {
     List<Exam> findByNoteId(Long noteId);
+    List<Exam> findWithQuestionsByNoteId(Long noteId);
+    List<Exam> findWithQuestionsByNoteIds(List<Long> noteIds);
     Exam findById(Long id);
     int insert(Exam exam);
     int update(Exam exam);
@@ -1,15 +1,21 @@
 package com.example.demo.mapper;
 
 import com.example.demo.entity.ExamSM2Stats;
+import com.example.demo.entity.ReviewExam;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface ExamSM2StatsMapper {
     ExamSM2Stats findByExamIdAndUserId(Long examId, Long userId);
     List<ExamSM2Stats> findByUserId(Long userId);
+    List<ReviewExam> findDueReviews(Long userId, LocalDateTime now, int limit);
+    List<ReviewExam> findReviewFallback(Long userId, LocalDateTime todayStart, int limit);
     int insert(ExamSM2Stats stats);
     int update(ExamSM2Stats stats);
+    int syncLastPercentage(Collection<Long> attemptIds);
 }
 
@@ -0,0 +1,12 @@
+package com.example.demo.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.Map;
+
+@Mapper
+public interface ExamScoreStatsMapper {
+    Map<String, Object> findByExamId(Long examId);
+    int applyDelta(Long examId, int countDelta, double sumDelta, double sumSquaresDelta, int[] bucketDeltas);
+}
+
@@ -0,0 +1,22 @@
+package com.example.demo.mapper;
+
+import com.example.demo.entity.GradedResponse;
+import com.example.demo.entity.QuestionItemStats;
+import com.example.demo.entity.QuestionWrongAnswer;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.List;
+
+@Mapper
+public interface QuestionItemStatsMapper {
+    List<QuestionItemStats> findByExamId(Long examId);
+    List<QuestionWrongAnswer> findTopWrongAnswersByExamId(Long examId, int perQuestion);
+    Cursor<GradedResponse> streamGradedResponses(Long examId);
+    List<Long> findExamIdsAfter(Long afterExamId, int limit);
+    int batchApplyDelta(List<QuestionItemStats> deltas);
+    int batchApplyWrongAnswers(List<QuestionWrongAnswer> deltas);
+    int deleteItemStatsByExamId(Long examId);
+    int deleteWrongAnswersByExamId(Long examId);
+}
+
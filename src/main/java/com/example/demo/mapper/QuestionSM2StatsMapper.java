@@ -0,0 +1,16 @@
+package com.example.demo.mapper;
+
+import com.example.demo.entity.QuestionSM2Stats;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface QuestionSM2StatsMapper {
+    List<QuestionSM2Stats> findByUserIdAndQuestionIds(Long userId, Collection<Long> questionIds);
+    List<QuestionSM2Stats> findDueQuestions(Long userId, LocalDateTime now, boolean missedOnly, int limit);
+    int batchUpsert(List<QuestionSM2Stats> stats);
+}
+
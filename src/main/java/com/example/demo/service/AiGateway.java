@@ -0,0 +1,269 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AiHttpMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class AiGateway {
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AiHttpMetrics httpMetrics;
+
+    @Autowired
+    private AiResilience aiResilience;
+
+    @Value("${ai.gateway.threads:8}")
+    private int threads;
+
+    @Value("${ai.gateway.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${ai.gateway.max-streams:200}")
+    private int maxStreams;
+
+    @Value("${ai.gateway.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    @Value("${ai.gateway.fan-out-threads:8}")
+    private int fanOutThreads;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor fanOutExecutor;
+    private String apiKey;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "ai-gateway-" + threadIndex.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        AtomicInteger fanOutIndex = new AtomicInteger();
+        fanOutExecutor = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "ai-gateway-fan-out-" + fanOutIndex.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                });
+        fanOutExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        fanOutExecutor.shutdownNow();
+    }
+
+    public String getApiKey() {
+        if (apiKey == null) {
+            String key = environment.getProperty("deepseek.api.key");
+            if (key == null || key.trim().isEmpty()) {
+                key = environment.getProperty("DEEPSEEK_API_KEY");
+            }
+            if (key == null || key.trim().isEmpty()) {
+                key = System.getProperty("deepseek.api.key");
+            }
+            if (key == null || key.trim().isEmpty()) {
+                key = System.getProperty("DEEPSEEK_API_KEY");
+            }
+            if (key == null || key.trim().isEmpty()) {
+                key = System.getenv("DEEPSEEK_API_KEY");
+            }
+            if (key == null || key.trim().isEmpty()) {
+                key = System.getenv("deepseek.api.key");
+            }
+            apiKey = key;
+        }
+        return apiKey;
+    }
+
+    public boolean hasApiKey() {
+        String key = getApiKey();
+        return key != null && !key.trim().isEmpty();
+    }
+
+    public String getChatCompletionsUrl() {
+        String baseUrl = environment.getProperty("deepseek.api.base-url", "https://api.deepseek.com");
+        return baseUrl.replaceAll("/+$", "") + "/v1/chat/completions";
+    }
+
+    public String complete(List<Map<String, String>> messages, int maxTokens, double temperature) {
+        if (!hasApiKey()) {
+            throw new IllegalStateException("DeepSeek API Key 未配置");
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("model", "deepseek-chat");
+        payload.put("messages", messages);
+        payload.put("max_tokens", maxTokens);
+        payload.put("temperature", temperature);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(getApiKey());
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
+
+        inFlight.incrementAndGet();
+        try {
+            ResponseEntity<Map> response = aiResilience.execute(
+                    () -> restTemplate.postForEntity(getChatCompletionsUrl(), entity, Map.class));
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> body = response.getBody();
+            if (body == null) {
+                throw new IllegalStateException("AI 接口返回为空");
+            }
+
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> choices = (List<Map<String, Object>>) body.get("choices");
+            if (choices == null || choices.isEmpty()) {
+                throw new IllegalStateException("AI 返回格式异常");
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, String> message = (Map<String, String>) choices.get(0).get("message");
+            completed.increment();
+            return message.get("content");
+        } catch (RuntimeException e) {
+            failed.increment();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public CompletableFuture<String> completeAsync(List<Map<String, String>> messages, int maxTokens, double temperature) {
+        return submit(() -> complete(messages, maxTokens, temperature));
+    }
+
+    public List<String> completeAll(List<List<Map<String, String>>> conversations, int maxTokens, double temperature) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(conversations.size());
+        for (List<Map<String, String>> messages : conversations) {
+            futures.add(CompletableFuture.supplyAsync(() -> complete(messages, maxTokens, temperature), fanOutExecutor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            for (CompletableFuture<String> future : futures) {
+                future.cancel(true);
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        List<String> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<String> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new AiBusyException(retryAfterSeconds);
+        }
+        return future;
+    }
+
+    public boolean isAvailable() {
+        return aiResilience.isAvailable();
+    }
+
+    public boolean tryOpenStream() {
+        if (activeStreams.incrementAndGet() > maxStreams) {
+            activeStreams.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void closeStream() {
+        activeStreams.decrementAndGet();
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("maxWorkers", threads);
+        stats.put("fanOutQueueDepth", fanOutExecutor.getQueue().size());
+        stats.put("fanOutActiveWorkers", fanOutExecutor.getActiveCount());
+        stats.put("inFlight", inFlight.get());
+        stats.put("activeStreams", activeStreams.get());
+        stats.put("maxStreams", maxStreams);
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("http", httpMetrics.snapshot());
+        stats.put("resilience", aiResilience.stats());
+        return stats;
+    }
+
+    public static class AiBusyException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public AiBusyException(int retryAfterSeconds) {
+            super("AI 服务繁忙，请稍后重试");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
+
@@ -0,0 +1,402 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class AiResilience {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int LATENCY_SAMPLES = 200;
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    @Value("${ai.resilience.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${ai.resilience.base-backoff-ms:500}")
+    private long baseBackoffMs;
+
+    @Value("${ai.resilience.max-backoff-ms:8000}")
+    private long maxBackoffMs;
+
+    @Value("${ai.resilience.retry-deadline-ms:120000}")
+    private long retryDeadlineMs;
+
+    @Value("${ai.resilience.retry-budget-ratio:0.2}")
+    private double retryBudgetRatio;
+
+    @Value("${ai.resilience.retry-budget-max:10}")
+    private double retryBudgetMax;
+
+    @Value("${ai.resilience.window-size:20}")
+    private int windowSize;
+
+    @Value("${ai.resilience.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${ai.resilience.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${ai.resilience.open-ms:30000}")
+    private long openMs;
+
+    @Value("${ai.resilience.hedging-enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${ai.resilience.hedge-min-delay-ms:1000}")
+    private long hedgeMinDelayMs;
+
+    @Value("${ai.resilience.hedge-threads:16}")
+    private int hedgeThreads;
+
+    private final Object lock = new Object();
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+    private boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private double budgetTokens;
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyIndex;
+    private int latencyCount;
+
+    private final Map<State, LongAdder> transitions = new EnumMap<>(State.class);
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder retriesDenied = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgesDenied = new LongAdder();
+    private final LongAdder wastedNanos = new LongAdder();
+    private ThreadPoolExecutor hedgeExecutor;
+
+    @PostConstruct
+    public void start() {
+        window = new boolean[windowSize];
+        budgetTokens = retryBudgetMax;
+        for (State s : State.values()) {
+            transitions.put(s, new LongAdder());
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        hedgeExecutor = new ThreadPoolExecutor(0, hedgeThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "ai-hedge-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    public <T> T execute(Callable<T> attempt) {
+        calls.increment();
+        long firstStart = System.nanoTime();
+        RuntimeException last = null;
+        for (int i = 0; i < maxAttempts; i++) {
+            if (i > 0) {
+                long backoff = backoffMillis(i);
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstStart) + backoff > retryDeadlineMs
+                        || !tryAcquireToken()) {
+                    retriesDenied.increment();
+                    break;
+                }
+                retries.increment();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            try {
+                acquirePermission();
+            } catch (CircuitOpenException e) {
+                failures.increment();
+                throw e;
+            }
+            long start = System.nanoTime();
+            try {
+                T result = hedgingEnabled ? executeHedged(attempt) : attempt.call();
+                long elapsed = System.nanoTime() - start;
+                recordOutcome(true);
+                recordLatency(elapsed);
+                successes.increment();
+                return result;
+            } catch (Exception e) {
+                RuntimeException failure = asRuntime(e);
+                if (!isRetryable(failure)) {
+                    recordOutcome(true);
+                    failures.increment();
+                    throw failure;
+                }
+                wastedNanos.add(System.nanoTime() - start);
+                recordOutcome(false);
+                last = failure;
+            }
+        }
+        failures.increment();
+        throw last;
+    }
+
+    public boolean isAvailable() {
+        synchronized (lock) {
+            return state != State.OPEN || System.currentTimeMillis() - openedAt >= openMs;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (lock) {
+            stats.put("state", state.name());
+            stats.put("windowCalls", windowCount);
+            stats.put("windowFailureRate", windowCount > 0 ? (double) windowFailures / windowCount : 0.0);
+            stats.put("retryBudgetTokens", budgetTokens);
+        }
+        Map<String, Object> transitionCounts = new HashMap<>();
+        for (Map.Entry<State, LongAdder> entry : transitions.entrySet()) {
+            transitionCounts.put(entry.getKey().name(), entry.getValue().sum());
+        }
+        stats.put("transitions", transitionCounts);
+        stats.put("calls", calls.sum());
+        stats.put("successes", successes.sum());
+        stats.put("failures", failures.sum());
+        stats.put("retries", retries.sum());
+        stats.put("retriesDenied", retriesDenied.sum());
+        stats.put("shortCircuited", shortCircuited.sum());
+        stats.put("hedgingEnabled", hedgingEnabled);
+        stats.put("hedges", hedges.sum());
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("hedgesDenied", hedgesDenied.sum());
+        stats.put("wastedMs", TimeUnit.NANOSECONDS.toMillis(wastedNanos.sum()));
+        stats.put("p50Ms", latencyPercentile(0.50));
+        stats.put("p95Ms", latencyPercentile(0.95));
+        return stats;
+    }
+
+    private <T> T executeHedged(Callable<T> attempt) throws Exception {
+        long delay = Math.max(hedgeMinDelayMs, latencyPercentile(0.95));
+        if (latencySampleCount() < MIN_HEDGE_SAMPLES) {
+            return attempt.call();
+        }
+
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<T>> futures = new ArrayList<>(2);
+        long[] starts = new long[2];
+        try {
+            starts[0] = System.nanoTime();
+            futures.add(completion.submit(attempt));
+        } catch (RejectedExecutionException e) {
+            return attempt.call();
+        }
+
+        try {
+            Future<T> done = completion.poll(delay, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                if (tryAcquireToken()) {
+                    try {
+                        starts[1] = System.nanoTime();
+                        futures.add(completion.submit(attempt));
+                        hedges.increment();
+                    } catch (RejectedExecutionException e) {
+                        hedgesDenied.increment();
+                    }
+                } else {
+                    hedgesDenied.increment();
+                }
+                done = completion.take();
+            }
+
+            int pending = futures.size() - 1;
+            while (true) {
+                try {
+                    T result = done.get();
+                    if (futures.size() > 1) {
+                        int loser = done == futures.get(0) ? 1 : 0;
+                        if (loser == 0) {
+                            hedgeWins.increment();
+                        }
+                        wastedNanos.add(System.nanoTime() - starts[loser]);
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    if (pending == 0) {
+                        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                    pending--;
+                    done = completion.take();
+                }
+            }
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void acquirePermission() {
+        synchronized (lock) {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMs) {
+                    shortCircuited.increment();
+                    throw new CircuitOpenException();
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    shortCircuited.increment();
+                    throw new CircuitOpenException();
+                }
+                probeInFlight = true;
+            }
+        }
+    }
+
+    private void recordOutcome(boolean success) {
+        synchronized (lock) {
+            if (success) {
+                budgetTokens = Math.min(retryBudgetMax, budgetTokens + retryBudgetRatio);
+            }
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                if (success) {
+                    transition(State.CLOSED);
+                    Arrays.fill(window, false);
+                    windowIndex = 0;
+                    windowCount = 0;
+                    windowFailures = 0;
+                } else {
+                    transition(State.OPEN);
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                return;
+            }
+
+            if (windowCount == windowSize) {
+                if (window[windowIndex]) {
+                    windowFailures--;
+                }
+            } else {
+                windowCount++;
+            }
+            window[windowIndex] = !success;
+            if (!success) {
+                windowFailures++;
+            }
+            windowIndex = (windowIndex + 1) % windowSize;
+
+            if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    private void transition(State next) {
+        state = next;
+        if (next == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        }
+        transitions.get(next).increment();
+    }
+
+    private boolean tryAcquireToken() {
+        synchronized (lock) {
+            if (budgetTokens >= 1) {
+                budgetTokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private long backoffMillis(int retry) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(retry, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (lock) {
+            latencies[latencyIndex] = TimeUnit.NANOSECONDS.toMillis(nanos);
+            latencyIndex = (latencyIndex + 1) % LATENCY_SAMPLES;
+            if (latencyCount < LATENCY_SAMPLES) {
+                latencyCount++;
+            }
+        }
+    }
+
+    private int latencySampleCount() {
+        synchronized (lock) {
+            return latencyCount;
+        }
+    }
+
+    private long latencyPercentile(double percentile) {
+        long[] samples;
+        synchronized (lock) {
+            if (latencyCount == 0) {
+                return 0;
+            }
+            samples = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(samples);
+        return samples[(int) Math.min(samples.length - 1, Math.ceil(percentile * samples.length) - 1)];
+    }
+
+    private boolean isRetryable(RuntimeException e) {
+        return e instanceof HttpServerErrorException
+                || e instanceof HttpClientErrorException.TooManyRequests
+                || e instanceof ResourceAccessException;
+    }
+
+    private RuntimeException asRuntime(Exception e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            return new IllegalStateException("AI 请求被中断", e);
+        }
+        return new IllegalStateException(e.getMessage(), e);
+    }
+
+    public static class CircuitOpenException extends RuntimeException {
+        public CircuitOpenException() {
+            super("AI 服务暂时不可用，请稍后重试");
+        }
+    }
+}
+
@@ -0,0 +1,378 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.ExamAnswer;
+import com.example.demo.mapper.ExamAnswerMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class AnswerDraftBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerDraftBuffer.class);
+
+    private static final int ANSWER_BATCH_SIZE = 500;
+
+    @Autowired
+    private ExamAnswerMapper examAnswerMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${exam.draft-buffer.journal-dir:./data/draft-journal}")
+    private String journalDir;
+
+    @Value("${exam.draft-buffer.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    @Value("${exam.draft-buffer.max-answers:10000}")
+    private int maxAnswers;
+
+    @Value("${exam.draft-buffer.fsync:true}")
+    private boolean fsync;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Object journalLock = new Object();
+    private final Object syncLock = new Object();
+    private final Object flushLock = new Object();
+    private final AtomicInteger bufferedAnswers = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private volatile Map<DraftKey, Draft> buffer = new ConcurrentHashMap<>();
+    private volatile Map<DraftKey, Draft> flushing = new ConcurrentHashMap<>();
+
+    private Path journalFile;
+    private Path flushingFile;
+    private FileChannel journal;
+    private long appendedBytes;
+    private long syncedBytes;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path dir = Paths.get(journalDir);
+        Files.createDirectories(dir);
+        journalFile = dir.resolve("drafts.journal");
+        flushingFile = dir.resolve("drafts.journal.flushing");
+
+        if (Files.exists(journalFile)) {
+            if (Files.exists(flushingFile)) {
+                Files.write(flushingFile, Files.readAllBytes(journalFile), StandardOpenOption.APPEND);
+                Files.delete(journalFile);
+            } else {
+                Files.move(journalFile, flushingFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        if (Files.exists(flushingFile)) {
+            replay(flushingFile, flushing);
+        }
+        journal = openJournal();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "answer-draft-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        scheduler.shutdown();
+        flushQuietly();
+        synchronized (syncLock) {
+            synchronized (journalLock) {
+                journal.close();
+            }
+        }
+    }
+
+    public void put(Long examId, Long userId, Map<Long, String> answers, LocalDateTime saveTime) {
+        DraftKey key = new DraftKey(examId, userId);
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("examId", examId);
+        entry.put("userId", userId);
+        entry.put("time", saveTime.toString());
+        entry.put("answers", answers);
+
+        long position;
+        synchronized (journalLock) {
+            position = append(entry);
+            Draft previous = buffer.get(key);
+            Draft draft = Draft.merge(previous, answers, saveTime);
+            buffer.put(key, draft);
+            bufferedAnswers.addAndGet(draft.answers.size() - (previous != null ? previous.answers.size() : 0));
+        }
+        sync(position);
+        if (bufferedAnswers.get() >= maxAnswers && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    public List<ExamAnswer> overlay(Long examId, Long userId, List<ExamAnswer> stored) {
+        DraftKey key = new DraftKey(examId, userId);
+        // buffer before flushing: a rotation publishes flushing = buffer before swapping in the new buffer
+        Draft newer = buffer.get(key);
+        Draft older = flushing.get(key);
+        if (older == null && newer == null) {
+            return stored;
+        }
+
+        Map<Long, ExamAnswer> merged = new TreeMap<>();
+        for (ExamAnswer answer : stored) {
+            merged.put(answer.getQuestionId(), answer);
+        }
+        for (Draft draft : new Draft[] {older, newer}) {
+            if (draft == null) {
+                continue;
+            }
+            for (ExamAnswer answer : toRows(key, draft)) {
+                merged.put(answer.getQuestionId(), answer);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    public void discard(Long examId, Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    discardNow(examId, userId);
+                }
+            });
+        } else {
+            discardNow(examId, userId);
+        }
+    }
+
+    private void discardNow(Long examId, Long userId) {
+        DraftKey key = new DraftKey(examId, userId);
+        long position;
+        synchronized (journalLock) {
+            Draft removed = buffer.remove(key);
+            Draft removedFlushing = flushing.remove(key);
+            if (removed == null && removedFlushing == null) {
+                return;
+            }
+            if (removed != null) {
+                bufferedAnswers.addAndGet(-removed.answers.size());
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("examId", examId);
+            entry.put("userId", userId);
+            entry.put("discard", true);
+            position = append(entry);
+        }
+        sync(position);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("bufferedDrafts", buffer.size());
+        stats.put("bufferedAnswers", bufferedAnswers.get());
+        stats.put("flushingDrafts", flushing.size());
+        return stats;
+    }
+
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            if (flushing.isEmpty()) {
+                synchronized (syncLock) {
+                    synchronized (journalLock) {
+                        if (buffer.isEmpty()) {
+                            return;
+                        }
+                        if (fsync) {
+                            journal.force(false);
+                        }
+                        syncedBytes = appendedBytes;
+                        journal.close();
+                        Files.deleteIfExists(flushingFile);
+                        Files.move(journalFile, flushingFile, StandardCopyOption.ATOMIC_MOVE);
+                        journal = openJournal();
+                        flushing = buffer;
+                        buffer = new ConcurrentHashMap<>();
+                        bufferedAnswers.set(0);
+                    }
+                }
+            }
+
+            for (Map.Entry<DraftKey, Draft> entry : flushing.entrySet()) {
+                DraftKey key = entry.getKey();
+                List<ExamAnswer> rows;
+                synchronized (journalLock) {
+                    if (flushing.get(key) != entry.getValue()) {
+                        continue;
+                    }
+                    rows = toRows(key, entry.getValue());
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    examAnswerMapper.deleteDraftsByExamIdAndUserId(key.examId, key.userId, entry.getValue().answers.keySet());
+                    for (int from = 0; from < rows.size(); from += ANSWER_BATCH_SIZE) {
+                        examAnswerMapper.batchUpsert(rows.subList(from, Math.min(from + ANSWER_BATCH_SIZE, rows.size())));
+                    }
+                });
+                boolean discarded;
+                synchronized (journalLock) {
+                    discarded = flushing.remove(key) == null;
+                }
+                if (discarded) {
+                    examAnswerMapper.deleteDraftsByExamIdAndUserId(key.examId, key.userId, null);
+                }
+            }
+            Files.deleteIfExists(flushingFile);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Answer draft flush failed, will retry on next tick", e);
+        }
+    }
+
+    private long append(Map<String, Object> entry) {
+        try {
+            byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buf = ByteBuffer.wrap(line);
+            while (buf.hasRemaining()) {
+                journal.write(buf);
+            }
+            appendedBytes += line.length;
+            return appendedBytes;
+        } catch (IOException e) {
+            throw new IllegalStateException("答案草稿日志写入失败", e);
+        }
+    }
+
+    /**
+     * Group commit: appends happen under journalLock, the fsync does not. Whoever holds syncLock forces
+     * everything appended so far, so writers queued behind it usually find their bytes already synced.
+     */
+    private void sync(long position) {
+        if (!fsync) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedBytes >= position) {
+                return;
+            }
+            FileChannel channel;
+            long target;
+            synchronized (journalLock) {
+                channel = journal;
+                target = appendedBytes;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new IllegalStateException("答案草稿日志写入失败", e);
+            }
+            syncedBytes = target;
+        }
+    }
+
+    private FileChannel openJournal() throws IOException {
+        return FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void replay(Path file, Map<DraftKey, Draft> target) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map<?, ?> entry;
+                try {
+                    entry = objectMapper.readValue(line, Map.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                DraftKey key = new DraftKey(((Number) entry.get("examId")).longValue(), ((Number) entry.get("userId")).longValue());
+                if (Boolean.TRUE.equals(entry.get("discard"))) {
+                    target.remove(key);
+                    continue;
+                }
+                Map<Long, String> answers = new HashMap<>();
+                for (Map.Entry<?, ?> answer : ((Map<?, ?>) entry.get("answers")).entrySet()) {
+                    answers.put(Long.valueOf(answer.getKey().toString()),
+                            answer.getValue() != null ? answer.getValue().toString() : null);
+                }
+                target.put(key, Draft.merge(target.get(key), answers, LocalDateTime.parse(entry.get("time").toString())));
+            }
+        }
+    }
+
+    private List<ExamAnswer> toRows(DraftKey key, Draft draft) {
+        List<ExamAnswer> rows = new ArrayList<>(draft.answers.size());
+        for (Map.Entry<Long, String> entry : draft.answers.entrySet()) {
+            ExamAnswer answer = new ExamAnswer();
+            answer.setExamId(key.examId);
+            answer.setUserId(key.userId);
+            answer.setQuestionId(entry.getKey());
+            answer.setAnswer(entry.getValue());
+            answer.setSubmitTime(draft.saveTime);
+            rows.add(answer);
+        }
+        return rows;
+    }
+
+    private record DraftKey(long examId, long userId) {
+    }
+
+    /**
+     * Immutable snapshot; put replaces it instead of mutating, so overlay can read drafts without locking.
+     */
+    private static final class Draft {
+        private final Map<Long, String> answers;
+        private final LocalDateTime saveTime;
+
+        private Draft(Map<Long, String> answers, LocalDateTime saveTime) {
+            this.answers = answers;
+            this.saveTime = saveTime;
+        }
+
+        private static Draft merge(Draft previous, Map<Long, String> answers, LocalDateTime saveTime) {
+            Map<Long, String> merged = previous != null ? new HashMap<>(previous.answers) : new HashMap<>();
+            merged.putAll(answers);
+            return new Draft(merged, saveTime);
+        }
+    }
+}
+
@@ -0,0 +1,137 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Question;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class CompiledAnswerKey {
+
+    private static final long EMPTY_SLOT = Long.MIN_VALUE;
+
+    private final long[] slotKeys;
+    private final int[] slotIndexes;
+    private final int mask;
+
+    private final long[] questionIds;
+    private final String[] answers;
+    private final int[] points;
+    private final boolean[] gradable;
+    private final int maxScore;
+    private final int openMaxScore;
+
+    private CompiledAnswerKey(List<Question> questions) {
+        int size = questions.size();
+        questionIds = new long[size];
+        answers = new String[size];
+        points = new int[size];
+        gradable = new boolean[size];
+
+        int capacity = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+        slotKeys = new long[capacity];
+        slotIndexes = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(slotKeys, EMPTY_SLOT);
+
+        int max = 0;
+        int openMax = 0;
+        for (int i = 0; i < size; i++) {
+            Question q = questions.get(i);
+            long id = q.getId();
+            questionIds[i] = id;
+            points[i] = q.getPoints() != null ? q.getPoints() : 0;
+            gradable[i] = !isOpenQuestion(q.getType());
+            answers[i] = q.getCorrectAnswer() != null ? q.getCorrectAnswer().trim() : null;
+            if (gradable[i]) {
+                max += points[i];
+            } else {
+                openMax += points[i];
+            }
+
+            int slot = slotOf(id);
+            while (slotKeys[slot] != EMPTY_SLOT && slotKeys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            slotKeys[slot] = id;
+            slotIndexes[slot] = i;
+        }
+        maxScore = max;
+        openMaxScore = openMax;
+    }
+
+    public static CompiledAnswerKey compile(List<Question> questions) {
+        return new CompiledAnswerKey(questions);
+    }
+
+    public static boolean isOpenQuestion(String type) {
+        return "open_question".equals(type) || "open question".equals(type);
+    }
+
+    public int indexOf(long questionId) {
+        int slot = slotOf(questionId);
+        long key;
+        while ((key = slotKeys[slot]) != EMPTY_SLOT) {
+            if (key == questionId) {
+                return slotIndexes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int score(int index, String answer) {
+        return matches(index, answer) ? points[index] : 0;
+    }
+
+    public boolean matches(int index, String answer) {
+        if (index < 0 || !gradable[index] || answer == null) {
+            return false;
+        }
+        String expected = answers[index];
+        if (expected == null) {
+            return false;
+        }
+        int start = 0;
+        int end = answer.length();
+        while (start < end && answer.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && answer.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start != expected.length()) {
+            return false;
+        }
+        return answer.regionMatches(true, start, expected, 0, expected.length());
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public long questionId(int index) {
+        return questionIds[index];
+    }
+
+    public int points(int index) {
+        return points[index];
+    }
+
+    public boolean isGradable(int index) {
+        return gradable[index];
+    }
+
+    public int maxScore() {
+        return maxScore;
+    }
+
+    public int openMaxScore() {
+        return openMaxScore;
+    }
+
+    private int slotOf(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
+
@@ -0,0 +1,79 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.OpenAnswerTask;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "exam.grading.provider", havingValue = "deepseek", matchIfMissing = true)
+public class DeepSeekOpenAnswerGrader implements OpenAnswerGrader {
+
+    @Autowired
+    private AiGateway aiGateway;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public Map<Long, Integer> grade(List<OpenAnswerTask> tasks) throws Exception {
+        List<Map<String, Object>> items = new ArrayList<>(tasks.size());
+        for (OpenAnswerTask task : tasks) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", task.getAnswerId());
+            item.put("question", task.getQuestionTitle());
+            item.put("reference", task.getReferenceAnswer());
+            item.put("maxPoints", task.getPoints() != null ? task.getPoints() : 0);
+            item.put("answer", task.getAnswer());
+            items.add(item);
+        }
+
+        String raw = aiGateway.complete(Arrays.asList(
+                Map.of("role", "system", "content", buildSystemPrompt()),
+                Map.of("role", "user", "content", objectMapper.writeValueAsString(items))
+        ), 2048, 0.0);
+
+        String cleaned = raw.trim();
+        int firstBrace = cleaned.indexOf('{');
+        int lastBrace = cleaned.lastIndexOf('}');
+        if (firstBrace != -1 && lastBrace > firstBrace) {
+            cleaned = cleaned.substring(firstBrace, lastBrace + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> parsed = objectMapper.readValue(cleaned, Map.class);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> scores = (List<Map<String, Object>>) parsed.get("scores");
+        if (scores == null) {
+            throw new IllegalStateException("AI 评分结果格式异常");
+        }
+
+        Map<Long, Integer> result = new HashMap<>();
+        for (Map<String, Object> score : scores) {
+            Object id = score.get("id");
+            Object value = score.get("score");
+            if (id != null && value instanceof Number) {
+                result.put(Long.valueOf(id.toString()), (int) Math.round(((Number) value).doubleValue()));
+            }
+        }
+        return result;
+    }
+
+    private String buildSystemPrompt() {
+        return "You are a strict but fair exam grader. The user message is a JSON array of open-ended answers, " +
+                "each with \"id\", \"question\", \"reference\" (the reference answer), \"maxPoints\" and \"answer\" " +
+                "(the student's answer).\n\n" +
+                "Grade every item against its reference answer. Award partial credit for partially correct answers. " +
+                "Each score must be an integer between 0 and maxPoints.\n\n" +
+                "You MUST output **valid JSON only**, no explanation text, in this exact shape:\n" +
+                "{ \"scores\": Array<{ \"id\": number; \"score\": number }> }\n" +
+                "Return exactly one entry for every input id.";
+    }
+}
+
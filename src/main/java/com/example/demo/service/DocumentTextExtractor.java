@@ -0,0 +1,376 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.LruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+public class DocumentTextExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentTextExtractor.class);
+
+    private static final String EXTRACTION_VERSION = "pdf-text-v1:";
+
+    @Value("${ai.extract.threads:0}")
+    private int threads;
+
+    @Value("${ai.extract.pages-per-task:16}")
+    private int pagesPerTask;
+
+    @Value("${ai.extract.max-main-memory-mb:8}")
+    private long maxMainMemoryMb;
+
+    @Value("${ai.extract.cache.dir:./data/extract-cache}")
+    private String cacheDir;
+
+    @Value("${ai.extract.cache.max-entries:64}")
+    private int cacheMaxEntries;
+
+    @Value("${ai.extract.cache.max-memory-mb:64}")
+    private long cacheMaxMemoryMb;
+
+    @Value("${ai.extract.cache.max-disk-mb:1024}")
+    private long cacheMaxDiskMb;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder diskEvictions = new LongAdder();
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final Object diskEvictionLock = new Object();
+    private ThreadPoolExecutor executor;
+    private LruCache<String, String> memoryCache;
+
+    @PostConstruct
+    public void start() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "document-extract-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        memoryCache = new LruCache<>(cacheMaxEntries, cacheMaxMemoryMb * 1024 * 1024, text -> text.length() * 2L);
+        diskBytes.set(scanDiskCache(true).stream().mapToLong(CachedFile::size).sum());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public List<Extraction> extractAll(List<Path> files, List<String> filenames) {
+        List<List<CompletableFuture<String>>> parts = new ArrayList<>(files.size());
+        List<Extraction> results = new ArrayList<>(files.size());
+        String[] hashes = new String[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            List<CompletableFuture<String>> fileParts = new ArrayList<>();
+            Extraction immediate = null;
+            try {
+                if (isPdf(files.get(i), filenames.get(i))) {
+                    hashes[i] = hashOf(files.get(i));
+                    String cached = cachedText(hashes[i], files.get(i));
+                    if (cached != null) {
+                        immediate = new Extraction(cached, null);
+                    }
+                }
+                if (immediate == null) {
+                    immediate = submit(files.get(i), filenames.get(i), fileParts);
+                }
+            } catch (Exception e) {
+                immediate = new Extraction(null, e.getMessage());
+            }
+            parts.add(fileParts);
+            results.add(immediate);
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            if (results.get(i) != null) {
+                continue;
+            }
+            StringBuilder text = new StringBuilder();
+            try {
+                for (CompletableFuture<String> part : parts.get(i)) {
+                    text.append(part.join());
+                }
+                results.set(i, new Extraction(text.toString(), null));
+                if (hashes[i] != null) {
+                    store(hashes[i], text.toString());
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results.set(i, new Extraction(null, cause.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    public Map<String, Object> stats() {
+        long memory = memoryHits.sum();
+        long disk = diskHits.sum();
+        long missCount = misses.sum();
+        long requests = memory + disk + missCount;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("memoryHits", memory);
+        stats.put("diskHits", disk);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests > 0 ? (double) (memory + disk) / requests : 0.0);
+        stats.put("bytesSaved", bytesSaved.sum());
+        stats.put("memoryEntries", memoryCache.size());
+        stats.put("maxMemoryEntries", cacheMaxEntries);
+        stats.put("memoryBytes", memoryCache.weight());
+        stats.put("maxMemoryBytes", cacheMaxMemoryMb * 1024 * 1024);
+        stats.put("diskBytes", diskBytes.get());
+        stats.put("maxDiskBytes", cacheMaxDiskMb * 1024 * 1024);
+        stats.put("diskEvictions", diskEvictions.sum());
+        return stats;
+    }
+
+    private boolean isPdf(Path file, String filename) {
+        return file != null && filename != null && filename.toLowerCase().endsWith(".pdf");
+    }
+
+    private String hashOf(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(EXTRACTION_VERSION.getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String cachedText(String hash, Path file) throws IOException {
+        String text = memoryCache.get(hash);
+        if (text != null) {
+            memoryHits.increment();
+            bytesSaved.add(Files.size(file));
+            return text;
+        }
+        Path cached = cachePath(hash);
+        if (Files.exists(cached)) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(cached))) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                Files.deleteIfExists(cached);
+                text = null;
+            }
+            if (text != null) {
+                touch(cached);
+                diskHits.increment();
+                bytesSaved.add(Files.size(file));
+                memoryCache.put(hash, text);
+                return text;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void store(String hash, String text) {
+        memoryCache.put(hash, text);
+        Path target = cachePath(hash);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            long previous = Files.exists(target) ? Files.size(target) : 0;
+            long size = Files.size(temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskBytes.addAndGet(size - previous) > cacheMaxDiskMb * 1024 * 1024) {
+                evictDiskCache();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write extraction cache entry {}", hash, e);
+        }
+    }
+
+    private void evictDiskCache() {
+        synchronized (diskEvictionLock) {
+            long limit = cacheMaxDiskMb * 1024 * 1024;
+            if (diskBytes.get() <= limit) {
+                return;
+            }
+            List<CachedFile> files = scanDiskCache(false);
+            files.sort(Comparator.comparingLong(CachedFile::lastModified));
+            long total = files.stream().mapToLong(CachedFile::size).sum();
+            long target = limit * 9 / 10;
+            for (CachedFile file : files) {
+                if (total <= target) {
+                    break;
+                }
+                try {
+                    if (Files.deleteIfExists(file.path())) {
+                        diskEvictions.increment();
+                    }
+                    total -= file.size();
+                } catch (IOException e) {
+                    log.warn("Failed to evict extraction cache entry {}", file.path(), e);
+                }
+            }
+            diskBytes.set(total);
+        }
+    }
+
+    private List<CachedFile> scanDiskCache(boolean removeTempFiles) {
+        List<CachedFile> files = new ArrayList<>();
+        Path root = Paths.get(cacheDir);
+        if (!Files.isDirectory(root)) {
+            return files;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(root, 2)) {
+            paths = walk.filter(Files::isRegularFile).toList();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to scan extraction cache {}", root, e);
+            return files;
+        }
+        for (Path path : paths) {
+            try {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".txt.gz")) {
+                    files.add(new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                } else if (removeTempFiles && name.endsWith(".tmp")) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                log.debug("Skipping extraction cache file {}", path, e);
+            }
+        }
+        return files;
+    }
+
+    private void touch(Path cached) {
+        try {
+            Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("Failed to touch extraction cache entry {}", cached, e);
+        }
+    }
+
+    private Path cachePath(String hash) {
+        return Paths.get(cacheDir, hash.substring(0, 2), hash + ".txt.gz");
+    }
+
+    private Extraction submit(Path file, String filename, List<CompletableFuture<String>> parts) throws IOException {
+        if (file == null) {
+            throw new IOException("上传文件读取失败");
+        }
+        if (filename == null) {
+            return new Extraction("", null);
+        }
+        String lowerName = filename.toLowerCase();
+
+        if (lowerName.endsWith(".txt") || lowerName.endsWith(".md")) {
+            return new Extraction(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), null);
+        }
+
+        if (lowerName.endsWith(".pdf")) {
+            int pageCount;
+            try (PDDocument document = open(file)) {
+                pageCount = document.getNumberOfPages();
+            }
+            for (int start = 1; start <= pageCount; start += pagesPerTask) {
+                int from = start;
+                int to = Math.min(start + pagesPerTask - 1, pageCount);
+                parts.add(CompletableFuture.supplyAsync(() -> stripPages(file, from, to), executor));
+            }
+            return null;
+        }
+
+        if (lowerName.endsWith(".ppt") || lowerName.endsWith(".pptx")) {
+            return new Extraction("[PPT 文件暂未能正确解析，请优先尝试将 PPT 导出为 PDF 或 TXT 上传。]", null);
+        }
+
+        if (lowerName.endsWith(".jpg") || lowerName.endsWith(".jpeg") || lowerName.endsWith(".png")) {
+            return new Extraction("[图片文件，暂不支持自动提取文字，请手动输入关键内容]", null);
+        }
+
+        if (lowerName.endsWith(".doc") || lowerName.endsWith(".docx")) {
+            return new Extraction("[Word 文件，建议转为 PDF 或 TXT 格式上传]", null);
+        }
+
+        return new Extraction("", null);
+    }
+
+    private String stripPages(Path file, int from, int to) {
+        try (PDDocument document = open(file)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setPageEnd(String.valueOf(NoteChunker.PAGE_BREAK));
+            stripper.setStartPage(from);
+            stripper.setEndPage(to);
+            return stripper.getText(document);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private PDDocument open(Path file) throws IOException {
+        MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(maxMainMemoryMb * 1024 * 1024);
+        RandomAccessReadBufferedFile source = new RandomAccessReadBufferedFile(file.toFile());
+        try {
+            return Loader.loadPDF(source, memory.streamCache);
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    public record Extraction(String text, String error) {
+    }
+
+    private record CachedFile(Path path, long size, long lastModified) {
+    }
+}
+
@@ -2,7 +2,9 @@ package com.example.demo.service;
 
 import com.example.demo.entity.Exam;
 import com.example.demo.entity.ExamAnswer;
+import com.example.demo.entity.ExamSubmission;
 import com.example.demo.entity.Question;
+import com.example.demo.entity.QuestionSM2Stats;
 
 import java.util.List;
 import java.util.Map;
@@ -10,14 +12,23 @@ import java.util.Map;
 public interface ExamService {
     Exam getExamByNoteId(Long noteId);
     List<Exam> getExamsByNoteId(Long noteId);
+    List<Exam> getExamsByNoteIds(List<Long> noteIds);
     Exam getExamById(Long id);
     Exam createExamFromAI(Long noteId, Long userId, String noteContent, int questionCount, String difficulty, List<Map<String, Object>> aiQuestions, String examName);
     List<Question> getExamQuestions(Long examId);
+    Map<String, Object> getQuestionCacheStats();
     Long saveUserAnswers(Long examId, Long userId, Map<Long, String> answers, Long attemptId);
     List<ExamAnswer> getExamAnswers(Long examId, Long userId, Long attemptId);
+    Map<String, Object> getExamAnswersPage(Long examId, Long userId, Long attemptId, Long afterQuestionId, int limit);
     List<Map<String, Object>> getExamAttempts(Long examId, Long userId);
-    Map<String, Object> submitExam(Long examId, Long userId, Map<Long, String> answers, Long attemptId);
+    Map<String, Object> getExamAttemptsPage(Long examId, Long userId, String cursor, int limit, boolean summary);
+    Map<String, Object> submitExam(Long examId, Long userId, Map<Long, String> answers, Long attemptId, String idempotencyKey);
+    List<Map<String, Object>> submitExamBatch(Long examId, List<ExamSubmission> submissions);
     void deleteExam(Long examId, Long userId);
     List<Map<String, Object>> getReviewExams(Long userId, int limit);
+    List<QuestionSM2Stats> getDueQuestions(Long userId, int limit, boolean missedOnly);
+    Map<String, Object> getExamStatistics(Long examId);
+    List<Map<String, Object>> getItemAnalysis(Long examId);
+    long backfillItemAnalysis(Long examId);
 }
 
@@ -1,25 +1,41 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.LruCache;
 import com.example.demo.entity.Exam;
 import com.example.demo.entity.ExamAnswer;
 import com.example.demo.entity.ExamAttempt;
 import com.example.demo.entity.ExamSM2Stats;
+import com.example.demo.entity.ExamSubmission;
+import com.example.demo.entity.GradedResponse;
 import com.example.demo.entity.Note;
 import com.example.demo.entity.Option;
 import com.example.demo.entity.Question;
+import com.example.demo.entity.QuestionItemStats;
+import com.example.demo.entity.QuestionSM2Stats;
+import com.example.demo.entity.QuestionWrongAnswer;
+import com.example.demo.entity.ReviewExam;
 import com.example.demo.mapper.ExamAnswerMapper;
 import com.example.demo.mapper.ExamAttemptMapper;
 import com.example.demo.mapper.ExamMapper;
 import com.example.demo.mapper.ExamSM2StatsMapper;
+import com.example.demo.mapper.ExamScoreStatsMapper;
 import com.example.demo.mapper.NoteMapper;
+import com.example.demo.mapper.QuestionItemStatsMapper;
 import com.example.demo.mapper.QuestionMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.demo.mapper.QuestionSM2StatsMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -42,11 +58,50 @@ public class ExamServiceImpl implements ExamService {
     @Autowired
     private ExamSM2StatsMapper examSM2StatsMapper;
 
+    @Autowired
+    private QuestionSM2StatsMapper questionSM2StatsMapper;
+
+    @Autowired
+    private OpenAnswerGradingService openAnswerGradingService;
+
+    @Autowired
+    private ExamScoreStatsMapper examScoreStatsMapper;
+
+    @Autowired
+    private QuestionItemStatsMapper questionItemStatsMapper;
+
+    @Autowired
+    private AnswerDraftBuffer answerDraftBuffer;
+
     @Autowired
     private NoteMapper noteMapper;
 
+    private static final int ANSWER_BATCH_SIZE = 500;
+
+    private static final byte OUTCOME_WRONG = 1;
+    private static final byte OUTCOME_CORRECT = 2;
+
+    private static final int SM2_MAX_RETRIES = 5;
+
+    private static final int TOP_WRONG_ANSWERS = 3;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Value("${exam.question-cache.max-size:1000}")
+    private int questionCacheMaxSize;
+
+    private LruCache<Long, List<Question>> questionCache;
+
+    private LruCache<Long, CompiledAnswerKey> answerKeyCache;
+
+    @PostConstruct
+    void initCaches() {
+        questionCache = new LruCache<>(questionCacheMaxSize);
+        answerKeyCache = new LruCache<>(questionCacheMaxSize);
+    }
+
     @Override
     public Exam getExamByNoteId(Long noteId) {
         List<Exam> exams = examMapper.findByNoteId(noteId);
@@ -60,14 +115,34 @@ public class ExamServiceImpl implements ExamService {
 
     @Override
     public List<Exam> getExamsByNoteId(Long noteId) {
-        List<Exam> exams = examMapper.findByNoteId(noteId);
-        
-        for (Exam exam : exams) {
-            exam.setQuestions(getExamQuestions(exam.getId()));
+        List<Exam> exams = examMapper.findWithQuestionsByNoteId(noteId);
+        cacheLoadedQuestions(exams);
+        return exams;
+    }
+
+    @Override
+    public List<Exam> getExamsByNoteIds(List<Long> noteIds) {
+        if (noteIds == null || noteIds.isEmpty()) {
+            return new ArrayList<>();
         }
+        List<Exam> exams = examMapper.findWithQuestionsByNoteIds(noteIds);
+        cacheLoadedQuestions(exams);
         return exams;
     }
 
+    private void cacheLoadedQuestions(List<Exam> exams) {
+        for (Exam exam : exams) {
+            List<Question> questions = exam.getQuestions();
+            if (questions == null || questions.isEmpty()) {
+                exam.setQuestions(new ArrayList<>());
+                continue;
+            }
+            List<Question> loaded = prepareLoadedQuestions(questions);
+            exam.setQuestions(loaded);
+            questionCache.put(exam.getId(), loaded);
+        }
+    }
+
     @Override
     public Exam getExamById(Long id) {
         Exam exam = examMapper.findById(id);
@@ -156,12 +231,47 @@ public class ExamServiceImpl implements ExamService {
 
     @Override
     public List<Question> getExamQuestions(Long examId) {
+        List<Question> cached = questionCache.get(examId);
+        if (cached != null) {
+            return cached;
+        }
+
         List<Question> questions = questionMapper.findByExamId(examId);
-        
+        if (questions.isEmpty()) {
+            return questions;
+        }
+        List<Question> loaded = prepareLoadedQuestions(questions);
+        questionCache.put(examId, loaded);
+        return loaded;
+    }
+
+    private List<Question> prepareLoadedQuestions(List<Question> questions) {
         for (Question q : questions) {
-            parseOptionsFromJson(q);
+            if (!isJsonArray(q.getOptionsJson())) {
+                q.setOptionsJson(null);
+            }
         }
-        return questions;
+        return Collections.unmodifiableList(questions);
+    }
+
+    @Override
+    public Map<String, Object> getQuestionCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("questions", questionCache.stats());
+        stats.put("answerKeys", answerKeyCache.stats());
+        return stats;
+    }
+
+    private CompiledAnswerKey getAnswerKey(Long examId) {
+        CompiledAnswerKey answerKey = answerKeyCache.get(examId);
+        if (answerKey == null) {
+            List<Question> questions = getExamQuestions(examId);
+            answerKey = CompiledAnswerKey.compile(questions);
+            if (!questions.isEmpty()) {
+                answerKeyCache.put(examId, answerKey);
+            }
+        }
+        return answerKey;
     }
 
     private void insertQuestionWithOptions(Question question) {
@@ -179,192 +289,304 @@ public class ExamServiceImpl implements ExamService {
         }
     }
 
-    private void parseOptionsFromJson(Question question) {
-        if (question.getOptionsJson() != null && !question.getOptionsJson().trim().isEmpty()) {
-            try {
-                List<Map<String, Object>> optionsData = objectMapper.readValue(
-                    question.getOptionsJson(), 
-                    new TypeReference<List<Map<String, Object>>>() {}
-                );
-                List<Option> options = new ArrayList<>();
-                for (Map<String, Object> opt : optionsData) {
-                    Option option = new Option(
-                        (String) opt.get("value"),
-                        (String) opt.get("label"),
-                        (String) opt.get("text")
-                    );
-                    options.add(option);
-                }
-                question.setOptions(options);
-            } catch (Exception e) {
-                
-            }
+    private static boolean isJsonArray(String json) {
+        if (json == null) {
+            return false;
         }
+        String trimmed = json.trim();
+        return trimmed.startsWith("[") && trimmed.endsWith("]");
     }
 
     @Override
-    @Transactional
     public Long saveUserAnswers(Long examId, Long userId, Map<Long, String> answers, Long attemptId) {
         
         LocalDateTime submitTime = LocalDateTime.now();
 
-        for (Map.Entry<Long, String> entry : answers.entrySet()) {
-            ExamAnswer existing = examAnswerMapper.findByExamIdAndUserIdAndQuestionId(
-                examId, userId, entry.getKey());
-            
-            ExamAnswer answer = new ExamAnswer();
-            answer.setExamId(examId);
-            answer.setUserId(userId);
-            answer.setQuestionId(entry.getKey());
-            answer.setAnswer(entry.getValue());
-            answer.setSubmitTime(submitTime);
-            
-            if (existing != null) {
-                answer.setId(existing.getId());
-                examAnswerMapper.update(answer);
-            } else {
-                examAnswerMapper.insert(answer);
-            }
+        if (!answers.isEmpty()) {
+            answerDraftBuffer.put(examId, userId, answers, submitTime);
         }
 
         return submitTime.toEpochSecond(java.time.ZoneOffset.UTC) * 1000;
     }
 
+    private List<ExamAnswer> findDrafts(Long examId, Long userId) {
+        return answerDraftBuffer.overlay(examId, userId, examAnswerMapper.findDraftsByExamIdAndUserId(examId, userId));
+    }
+
+    private void batchUpsertAnswers(List<ExamAnswer> rows) {
+        for (int from = 0; from < rows.size(); from += ANSWER_BATCH_SIZE) {
+            int to = Math.min(from + ANSWER_BATCH_SIZE, rows.size());
+            examAnswerMapper.batchUpsert(rows.subList(from, to));
+        }
+    }
+
     @Override
     public List<ExamAnswer> getExamAnswers(Long examId, Long userId, Long attemptId) {
-        List<ExamAnswer> allAnswers = examAnswerMapper.findByExamIdAndUserId(examId, userId);
-        
         if (attemptId == null) {
-            
-            if (allAnswers.isEmpty()) {
-                return new ArrayList<>();
-            }
-            
-            LocalDateTime latestTime = allAnswers.stream()
-                .map(ExamAnswer::getSubmitTime)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-            if (latestTime != null) {
-                return allAnswers.stream()
-                    .filter(a -> a.getSubmitTime().equals(latestTime))
-                    .collect(java.util.stream.Collectors.toList());
+            List<ExamAnswer> drafts = findDrafts(examId, userId);
+            if (!drafts.isEmpty()) {
+                return drafts;
             }
+            ExamAttempt latest = examAttemptMapper.findLatestByExamIdAndUserId(examId, userId);
+            return latest != null ? examAnswerMapper.findByAttemptId(latest.getId()) : new ArrayList<>();
+        }
+
+        ExamAttempt attempt = examAttemptMapper.findById(attemptId);
+        if (attempt == null) {
+            return findDrafts(examId, userId);
+        }
+        if (!attempt.getExamId().equals(examId) || !attempt.getUserId().equals(userId)) {
             return new ArrayList<>();
+        }
+        return examAnswerMapper.findByAttemptId(attemptId);
+    }
+
+    @Override
+    public Map<String, Object> getExamAnswersPage(Long examId, Long userId, Long attemptId, Long afterQuestionId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Long resolvedAttemptId = attemptId;
+        if (attemptId == null) {
+            List<ExamAnswer> drafts = findDrafts(examId, userId);
+            if (!drafts.isEmpty()) {
+                return toAnswersPage(slicePage(drafts, afterQuestionId, pageSize + 1), pageSize);
+            }
+            ExamAttempt latest = examAttemptMapper.findLatestByExamIdAndUserId(examId, userId);
+            if (latest == null) {
+                return toAnswersPage(new ArrayList<>(), pageSize);
+            }
+            resolvedAttemptId = latest.getId();
         } else {
-            
             ExamAttempt attempt = examAttemptMapper.findById(attemptId);
-            if (attempt != null) {
-                LocalDateTime targetTime = attempt.getSubmitTime();
-                return allAnswers.stream()
-                    .filter(a -> a.getSubmitTime().equals(targetTime))
-                    .collect(java.util.stream.Collectors.toList());
+            if (attempt == null) {
+                return toAnswersPage(slicePage(findDrafts(examId, userId), afterQuestionId, pageSize + 1), pageSize);
+            }
+            if (!attempt.getExamId().equals(examId) || !attempt.getUserId().equals(userId)) {
+                return toAnswersPage(new ArrayList<>(), pageSize);
             }
-            
-            LocalDateTime targetTime = LocalDateTime.ofEpochSecond(attemptId / 1000, 0, java.time.ZoneOffset.UTC);
-            return allAnswers.stream()
-                .filter(a -> a.getSubmitTime().equals(targetTime))
-                .collect(java.util.stream.Collectors.toList());
         }
+        return toAnswersPage(examAnswerMapper.findPageByAttemptId(resolvedAttemptId, afterQuestionId, pageSize + 1), pageSize);
+    }
+
+    private List<ExamAnswer> slicePage(List<ExamAnswer> answers, Long afterQuestionId, int pageSize) {
+        List<ExamAnswer> page = new ArrayList<>(Math.min(pageSize, answers.size()));
+        for (ExamAnswer answer : answers) {
+            if (afterQuestionId != null && answer.getQuestionId() <= afterQuestionId) {
+                continue;
+            }
+            page.add(answer);
+            if (page.size() == pageSize) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    private Map<String, Object> toAnswersPage(List<ExamAnswer> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<ExamAnswer> items = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("items", items);
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            result.put("nextCursor", items.get(items.size() - 1).getQuestionId());
+        }
+        return result;
     }
 
     @Override
     public List<Map<String, Object>> getExamAttempts(Long examId, Long userId) {
+        List<ExamAttempt> examAttempts = examAttemptMapper.findWithAnswersByExamIdAndUserId(examId, userId);
         
-        List<ExamAttempt> examAttempts = examAttemptMapper.findByExamIdAndUserId(examId, userId);
-        
-        List<Map<String, Object>> attempts = new ArrayList<>();
+        List<Map<String, Object>> attempts = new ArrayList<>(examAttempts.size());
         for (ExamAttempt attempt : examAttempts) {
-            
-            List<ExamAnswer> answers = examAnswerMapper.findByExamIdAndUserId(examId, userId);
-            
-            List<ExamAnswer> attemptAnswers = answers.stream()
-                .filter(a -> a.getSubmitTime().equals(attempt.getSubmitTime()))
-                .collect(java.util.stream.Collectors.toList());
-            
-            Map<String, Object> attemptMap = new HashMap<>();
-            attemptMap.put("id", attempt.getId());
-            attemptMap.put("submitTime", attempt.getSubmitTime());
-            attemptMap.put("createdAt", attempt.getSubmitTime());
-            attemptMap.put("score", attempt.getTotalScore());
-            attemptMap.put("maxScore", attempt.getMaxScore());
-            attemptMap.put("percentage", attempt.getPercentage() != null ? attempt.getPercentage().doubleValue() : 0.0);
-            attemptMap.put("hasSubmitted", true); 
-            attemptMap.put("answers", attemptAnswers.stream().collect(java.util.stream.Collectors.toMap(
-                a -> a.getQuestionId().toString(),
-                ExamAnswer::getAnswer
-            )));
-            attempts.add(attemptMap);
-        }
-
-        attempts.sort((a, b) -> {
-            LocalDateTime timeA = (LocalDateTime) a.get("submitTime");
-            LocalDateTime timeB = (LocalDateTime) b.get("submitTime");
-            return timeB.compareTo(timeA);
-        });
+            attempts.add(toAttemptMap(attempt, attempt.getAnswers() != null ? attempt.getAnswers() : new ArrayList<>()));
+        }
         
         return attempts;
     }
 
     @Override
-    @Transactional
-    public Map<String, Object> submitExam(Long examId, Long userId, Map<Long, String> answers, Long attemptId) {
-        Exam exam = examMapper.findById(examId);
-        if (exam == null) {
-            throw new RuntimeException("考试不存在");
+    public Map<String, Object> getExamAttemptsPage(Long examId, Long userId, String cursor, int limit, boolean summary) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime beforeTime = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = decoded.lastIndexOf('_');
+                beforeTime = LocalDateTime.parse(decoded.substring(0, sep));
+                beforeId = Long.valueOf(decoded.substring(sep + 1));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("无效的分页游标");
+            }
         }
-        
-        List<Question> questions = getExamQuestions(examId);
-        int totalScore = 0;
-        int maxScore = 0;
 
-        for (Question q : questions) {
-            if (q.getType().equals("open_question") || q.getType().equals("open question")) {
-                
-                continue;
+        List<ExamAttempt> page = examAttemptMapper.findPageByExamIdAndUserId(examId, userId, beforeTime, beforeId, pageSize + 1);
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+
+        Map<Long, List<ExamAnswer>> answersByAttempt = new HashMap<>();
+        if (!summary && !page.isEmpty()) {
+            List<Long> attemptIds = new ArrayList<>(page.size());
+            for (ExamAttempt attempt : page) {
+                attemptIds.add(attempt.getId());
             }
-            maxScore += q.getPoints();
-            String userAnswer = answers.get(q.getId());
-            if (userAnswer != null && userAnswer.trim().equalsIgnoreCase(q.getCorrectAnswer().trim())) {
-                totalScore += q.getPoints();
+            for (ExamAnswer answer : examAnswerMapper.findByAttemptIds(attemptIds)) {
+                answersByAttempt.computeIfAbsent(answer.getAttemptId(), k -> new ArrayList<>()).add(answer);
             }
         }
 
+        List<Map<String, Object>> items = new ArrayList<>(page.size());
+        for (ExamAttempt attempt : page) {
+            items.add(toAttemptMap(attempt, summary ? null : answersByAttempt.getOrDefault(attempt.getId(), new ArrayList<>())));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("items", items);
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            ExamAttempt last = page.get(page.size() - 1);
+            String raw = last.getSubmitTime() + "_" + last.getId();
+            result.put("nextCursor", Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(raw.getBytes(StandardCharsets.UTF_8)));
+        }
+        return result;
+    }
+
+    private Map<String, Object> toAttemptMap(ExamAttempt attempt, List<ExamAnswer> answers) {
+        Map<String, Object> attemptMap = new HashMap<>();
+        attemptMap.put("id", attempt.getId());
+        attemptMap.put("submitTime", attempt.getSubmitTime());
+        attemptMap.put("createdAt", attempt.getSubmitTime());
+        attemptMap.put("score", attempt.getTotalScore());
+        attemptMap.put("maxScore", attempt.getMaxScore());
+        attemptMap.put("percentage", attempt.getPercentage() != null ? attempt.getPercentage().doubleValue() : 0.0);
+        attemptMap.put("hasSubmitted", true); 
+        if (answers != null) {
+            Map<String, Object> attemptAnswers = new HashMap<>();
+            for (ExamAnswer a : answers) {
+                attemptAnswers.put(a.getQuestionId().toString(), a.getAnswer());
+            }
+            attemptMap.put("answers", attemptAnswers);
+        }
+        return attemptMap;
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Map<String, Object> submitExam(Long examId, Long userId, Map<Long, String> answers, Long attemptId,
+                                          String idempotencyKey) {
+        if (idempotencyKey != null) {
+            ExamAttempt existing = examAttemptMapper.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+            if (existing != null) {
+                return toSubmitResult(existing, examId);
+            }
+        }
+
+        CompiledAnswerKey answerKey = getSubmitAnswerKey(examId);
+        answerDraftBuffer.discard(examId, userId);
+
+        GradedSubmission graded = grade(answerKey, examId, userId, answers, idempotencyKey, LocalDateTime.now());
+        try {
+            examAttemptMapper.insert(graded.attempt);
+        } catch (DuplicateKeyException e) {
+            ExamAttempt existing = examAttemptMapper.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+            if (existing == null) {
+                throw e;
+            }
+            return toSubmitResult(existing, examId);
+        }
+        persistSubmissions(examId, answerKey, List.of(graded));
+        return graded.toResult();
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public List<Map<String, Object>> submitExamBatch(Long examId, List<ExamSubmission> submissions) {
+        CompiledAnswerKey answerKey = getSubmitAnswerKey(examId);
         LocalDateTime submitTime = LocalDateTime.now();
+
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(submissions.size(), null));
+        List<GradedSubmission> graded = new ArrayList<>(submissions.size());
+        List<Integer> positions = new ArrayList<>(submissions.size());
+        for (int i = 0; i < submissions.size(); i++) {
+            ExamSubmission submission = submissions.get(i);
+            if (submission.getIdempotencyKey() != null) {
+                ExamAttempt existing = examAttemptMapper.findByUserIdAndIdempotencyKey(
+                        submission.getUserId(), submission.getIdempotencyKey());
+                if (existing != null) {
+                    results.set(i, toSubmitResult(existing, examId));
+                    continue;
+                }
+            }
+            answerDraftBuffer.discard(examId, submission.getUserId());
+            graded.add(grade(answerKey, examId, submission.getUserId(), submission.getAnswers(),
+                    submission.getIdempotencyKey(), submitTime));
+            positions.add(i);
+        }
+        if (graded.isEmpty()) {
+            return results;
+        }
+
+        List<ExamAttempt> attempts = new ArrayList<>(graded.size());
+        for (GradedSubmission g : graded) {
+            attempts.add(g.attempt);
+        }
+        for (int from = 0; from < attempts.size(); from += ANSWER_BATCH_SIZE) {
+            examAttemptMapper.batchInsert(attempts.subList(from, Math.min(from + ANSWER_BATCH_SIZE, attempts.size())));
+        }
+        persistSubmissions(examId, answerKey, graded);
+
+        for (int i = 0; i < graded.size(); i++) {
+            results.set(positions.get(i), graded.get(i).toResult());
+        }
+        return results;
+    }
+
+    private CompiledAnswerKey getSubmitAnswerKey(Long examId) {
+        Exam exam = examMapper.findById(examId);
+        if (exam == null) {
+            throw new RuntimeException("考试不存在");
+        }
+        return getAnswerKey(examId);
+    }
+
+    private GradedSubmission grade(CompiledAnswerKey answerKey, Long examId, Long userId, Map<Long, String> answers,
+                                   String idempotencyKey, LocalDateTime submitTime) {
+        GradedSubmission graded = new GradedSubmission();
+        graded.rows = new ArrayList<>(answers.size());
+        graded.outcomes = new byte[answerKey.size()];
+        int totalScore = 0;
         for (Map.Entry<Long, String> entry : answers.entrySet()) {
-            ExamAnswer existing = examAnswerMapper.findByExamIdAndUserIdAndQuestionId(
-                examId, userId, entry.getKey());
-            
+            int index = answerKey.indexOf(entry.getKey());
+            boolean correct = answerKey.matches(index, entry.getValue());
+            int score = correct ? answerKey.points(index) : 0;
+            totalScore += score;
+            boolean answered = entry.getValue() != null && !entry.getValue().trim().isEmpty();
+            if (index >= 0 && answered) {
+                graded.outcomes[index] = correct ? OUTCOME_CORRECT : OUTCOME_WRONG;
+            }
+
             ExamAnswer answer = new ExamAnswer();
             answer.setExamId(examId);
             answer.setUserId(userId);
             answer.setQuestionId(entry.getKey());
             answer.setAnswer(entry.getValue());
+            answer.setScore(score);
             answer.setSubmitTime(submitTime);
-
-            Question q = questions.stream()
-                .filter(question -> question.getId().equals(entry.getKey()))
-                .findFirst()
-                .orElse(null);
-            if (q != null && !q.getType().equals("open_question") && !q.getType().equals("open question")) {
-                if (entry.getValue() != null && entry.getValue().trim().equalsIgnoreCase(q.getCorrectAnswer().trim())) {
-                    answer.setScore(q.getPoints());
-                } else {
-                    answer.setScore(0);
-                }
-            } else {
-                answer.setScore(0); 
-            }
-            
-            if (existing != null) {
-                answer.setId(existing.getId());
-                examAnswerMapper.update(answer);
-            } else {
-                examAnswerMapper.insert(answer);
+            if (index >= 0 && answered && !answerKey.isGradable(index)) {
+                answer.setGradingStatus(OpenAnswerGradingService.STATUS_PENDING);
+                graded.pendingPoints += answerKey.points(index);
             }
+            graded.rows.add(answer);
         }
+        int maxScore = answerKey.maxScore() + answerKey.openMaxScore() - graded.pendingPoints;
 
-        double percentageValue = maxScore > 0 ? (totalScore * 100.0 / maxScore) : 0;
-        BigDecimal percentage = BigDecimal.valueOf(percentageValue).setScale(2, RoundingMode.HALF_UP);
+        graded.percentageValue = maxScore > 0 ? (totalScore * 100.0 / maxScore) : 0;
+        BigDecimal percentage = BigDecimal.valueOf(graded.percentageValue).setScale(2, RoundingMode.HALF_UP);
 
         ExamAttempt attempt = new ExamAttempt();
         attempt.setExamId(examId);
@@ -373,16 +595,63 @@ public class ExamServiceImpl implements ExamService {
         attempt.setMaxScore(maxScore);
         attempt.setPercentage(percentage);
         attempt.setSubmitTime(submitTime);
-        examAttemptMapper.insert(attempt);
+        attempt.setIdempotencyKey(idempotencyKey);
+        graded.attempt = attempt;
+        return graded;
+    }
 
-        updateSM2Stats(examId, userId, percentageValue, submitTime);
-        
+    private void persistSubmissions(Long examId, CompiledAnswerKey answerKey, List<GradedSubmission> graded) {
+        double sum = 0;
+        double sumSquares = 0;
+        int[] buckets = new int[ScoreHistogram.BUCKETS];
+        List<ExamAnswer> rows = new ArrayList<>();
+        Set<Long> userIds = new LinkedHashSet<>();
+        ItemStatsAccumulator itemStats = new ItemStatsAccumulator();
+        for (GradedSubmission g : graded) {
+            double storedPercentage = g.attempt.getPercentage().doubleValue();
+            sum += storedPercentage;
+            sumSquares += storedPercentage * storedPercentage;
+            buckets[ScoreHistogram.bucketOf(storedPercentage)]++;
+            userIds.add(g.attempt.getUserId());
+
+            for (ExamAnswer row : g.rows) {
+                row.setAttemptId(g.attempt.getId());
+                int index = answerKey.indexOf(row.getQuestionId());
+                if (index >= 0 && answerKey.isGradable(index)) {
+                    itemStats.record(examId, row.getQuestionId(), answerKey.matches(index, row.getAnswer()),
+                            row.getAnswer(), storedPercentage);
+                }
+            }
+            rows.addAll(g.rows);
+        }
+
+        batchUpsertAnswers(rows);
+        for (Long userId : userIds) {
+            examAnswerMapper.deleteDraftsByExamIdAndUserId(examId, userId, null);
+        }
+
+        for (GradedSubmission g : graded) {
+            updateSM2Stats(g.attempt, g.percentageValue);
+            updateQuestionSM2Stats(examId, g.attempt.getUserId(), answerKey, g.outcomes, g.attempt.getSubmitTime());
+            if (g.pendingPoints > 0) {
+                openAnswerGradingService.enqueue(g.attempt.getId());
+            }
+        }
+
+        itemStats.flushTo(questionItemStatsMapper);
+        examScoreStatsMapper.applyDelta(examId, graded.size(), sum, sumSquares, buckets);
+    }
+
+    private Map<String, Object> toSubmitResult(ExamAttempt attempt, Long examId) {
+        if (!attempt.getExamId().equals(examId)) {
+            throw new RuntimeException("幂等键已用于其他考试");
+        }
         Map<String, Object> result = new HashMap<>();
-        result.put("totalScore", totalScore);
-        result.put("maxScore", maxScore);
-        result.put("percentage", percentageValue);
+        result.put("totalScore", attempt.getTotalScore());
+        result.put("maxScore", attempt.getMaxScore());
+        result.put("percentage", attempt.getPercentage().doubleValue());
         result.put("attemptId", attempt.getId());
-        
+        result.put("duplicate", true);
         return result;
     }
 
@@ -398,145 +667,234 @@ public class ExamServiceImpl implements ExamService {
         }
         
         examMapper.deleteById(examId);
+        questionCache.remove(examId);
+        answerKeyCache.remove(examId);
     }
 
-    private int calculateQuality(double percentage) {
-        if (percentage >= 90) return 5;
-        if (percentage >= 70) return 4;
-        if (percentage >= 50) return 3;
-        if (percentage >= 30) return 2;
-        if (percentage > 0) return 1;
-        return 0;
-    }
+    private void updateSM2Stats(ExamAttempt attempt, double percentage) {
+        Long examId = attempt.getExamId();
+        Long userId = attempt.getUserId();
+        LocalDateTime submitTime = attempt.getSubmitTime();
+        int quality = Sm2Scheduler.qualityFromPercentage(percentage);
+
+        for (int retry = 0; retry < SM2_MAX_RETRIES; retry++) {
+            ExamSM2Stats stats = examSM2StatsMapper.findByExamIdAndUserId(examId, userId);
+            boolean isNew = stats == null;
+            if (isNew) {
+                stats = new ExamSM2Stats();
+                stats.setExamId(examId);
+                stats.setUserId(userId);
+                stats.setEaseFactor(BigDecimal.valueOf(Sm2Scheduler.INITIAL_EASE_FACTOR));
+                stats.setIntervalDays(Sm2Scheduler.INITIAL_INTERVAL_DAYS);
+                stats.setAttemptCount(0);
+            }
 
-    private void updateSM2Stats(Long examId, Long userId, double percentage, LocalDateTime submitTime) {
-        ExamSM2Stats stats = examSM2StatsMapper.findByExamIdAndUserId(examId, userId);
-        int quality = calculateQuality(percentage);
-        
-        if (stats == null) {
-            
-            stats = new ExamSM2Stats();
-            stats.setExamId(examId);
-            stats.setUserId(userId);
-            stats.setEaseFactor(BigDecimal.valueOf(2.5));
-            stats.setIntervalDays(1);
+            double easeFactor = Sm2Scheduler.nextEaseFactor(stats.getEaseFactor().doubleValue(), quality);
+            int newInterval = Sm2Scheduler.nextIntervalDays(stats.getIntervalDays(), easeFactor, quality);
+            stats.setEaseFactor(BigDecimal.valueOf(easeFactor));
+            stats.setIntervalDays(newInterval);
             stats.setLastReviewDate(submitTime);
-            stats.setNextReviewDate(submitTime.plusDays(1));
-            examSM2StatsMapper.insert(stats);
+            stats.setNextReviewDate(submitTime.plusDays(newInterval));
+            if (stats.getLastSubmitTime() == null || !submitTime.isBefore(stats.getLastSubmitTime())) {
+                stats.setLastAttemptId(attempt.getId());
+                stats.setLastPercentage(attempt.getPercentage());
+                stats.setLastSubmitTime(submitTime);
+            }
+            stats.setAttemptCount((stats.getAttemptCount() != null ? stats.getAttemptCount() : 0) + 1);
+
+            if (isNew) {
+                try {
+                    examSM2StatsMapper.insert(stats);
+                    return;
+                } catch (DuplicateKeyException e) {
+                    continue;
+                }
+            }
+            if (examSM2StatsMapper.update(stats) == 1) {
+                return;
+            }
         }
+        throw new RuntimeException("复习统计更新冲突，请重试");
+    }
 
-        BigDecimal ef = stats.getEaseFactor();
-        if (quality >= 3) {
-            double newEF = ef.doubleValue() + (0.1 - (5 - quality) * (0.08 + (5 - quality) * 0.02));
-            ef = BigDecimal.valueOf(Math.max(1.3, newEF));
+    private void updateQuestionSM2Stats(Long examId, Long userId, CompiledAnswerKey answerKey,
+                                        byte[] outcomes, LocalDateTime submitTime) {
+        List<Long> questionIds = new ArrayList<>(answerKey.size());
+        for (int i = 0; i < answerKey.size(); i++) {
+            if (answerKey.isGradable(i) && outcomes[i] != 0) {
+                questionIds.add(answerKey.questionId(i));
+            }
+        }
+        if (questionIds.isEmpty()) {
+            return;
         }
-        stats.setEaseFactor(ef);
 
-        int newInterval;
-        if (quality < 3) {
-            newInterval = 1; 
-        } else {
-            int currentInterval = stats.getIntervalDays();
-            if (currentInterval == 1) {
-                newInterval = 6; 
-            } else {
-                newInterval = (int)(currentInterval * ef.doubleValue());
+        Map<Long, QuestionSM2Stats> existing = new HashMap<>();
+        for (QuestionSM2Stats stats : questionSM2StatsMapper.findByUserIdAndQuestionIds(userId, questionIds)) {
+            existing.put(stats.getQuestionId(), stats);
+        }
+
+        List<QuestionSM2Stats> rows = new ArrayList<>(questionIds.size());
+        for (int i = 0; i < answerKey.size(); i++) {
+            if (!answerKey.isGradable(i) || outcomes[i] == 0) {
+                continue;
             }
+            int quality = outcomes[i] == OUTCOME_CORRECT ? 5 : 1;
+            QuestionSM2Stats stats = existing.get(answerKey.questionId(i));
+            double easeFactor = stats != null ? stats.getEaseFactor() : Sm2Scheduler.INITIAL_EASE_FACTOR;
+            int interval = stats != null ? stats.getIntervalDays() : Sm2Scheduler.INITIAL_INTERVAL_DAYS;
+            int lapses = stats != null ? stats.getLapseCount() : 0;
+            if (stats == null) {
+                stats = new QuestionSM2Stats();
+                stats.setUserId(userId);
+                stats.setQuestionId(answerKey.questionId(i));
+                stats.setExamId(examId);
+            }
+
+            easeFactor = Sm2Scheduler.nextEaseFactor(easeFactor, quality);
+            interval = Sm2Scheduler.nextIntervalDays(interval, easeFactor, quality);
+            stats.setEaseFactor(easeFactor);
+            stats.setIntervalDays(interval);
+            stats.setLapseCount(quality < 3 ? lapses + 1 : lapses);
+            stats.setLastQuality(quality);
+            stats.setLastReviewDate(submitTime);
+            stats.setNextReviewDate(submitTime.plusDays(interval));
+            rows.add(stats);
+        }
+        for (int from = 0; from < rows.size(); from += ANSWER_BATCH_SIZE) {
+            questionSM2StatsMapper.batchUpsert(rows.subList(from, Math.min(from + ANSWER_BATCH_SIZE, rows.size())));
         }
-        stats.setIntervalDays(newInterval);
-        stats.setLastReviewDate(submitTime);
-        stats.setNextReviewDate(submitTime.plusDays(newInterval));
-        
-        examSM2StatsMapper.update(stats);
     }
 
     @Override
-    public List<Map<String, Object>> getReviewExams(Long userId, int limit) {
-        LocalDateTime now = LocalDateTime.now();
-        List<ExamSM2Stats> sm2Stats = examSM2StatsMapper.findByUserId(userId);
-        List<Map<String, Object>> reviewExams = new ArrayList<>();
-        
-        for (ExamSM2Stats stat : sm2Stats) {
-            
-            if (stat.getNextReviewDate() != null && 
-                (stat.getNextReviewDate().isBefore(now) || stat.getNextReviewDate().isEqual(now))) {
-                
-                Exam exam = examMapper.findById(stat.getExamId());
-                if (exam == null) continue;
-
-                long overdueDays = java.time.temporal.ChronoUnit.DAYS.between(stat.getNextReviewDate(), now);
-                double priority = 1.0 + Math.min(overdueDays / 10.0, 1.0); 
-
-                List<ExamAttempt> attempts = examAttemptMapper.findByExamIdAndUserId(stat.getExamId(), userId);
-                Object lastSubmitTime = null;
-                Object lastPercentage = null;
-                if (!attempts.isEmpty()) {
-                    ExamAttempt lastAttempt = attempts.get(0); 
-                    lastSubmitTime = lastAttempt.getSubmitTime();
-                    lastPercentage = lastAttempt.getPercentage() != null ? 
-                        lastAttempt.getPercentage().doubleValue() : null;
+    public Map<String, Object> getExamStatistics(Long examId) {
+        Map<String, Object> statistics = ScoreHistogram.summarize(examScoreStatsMapper.findByExamId(examId));
+        statistics.put("examId", examId);
+        return statistics;
+    }
+
+    @Override
+    public List<Map<String, Object>> getItemAnalysis(Long examId) {
+        Map<Long, List<Map<String, Object>>> wrongByQuestion = new HashMap<>();
+        for (QuestionWrongAnswer wrong : questionItemStatsMapper.findTopWrongAnswersByExamId(examId, TOP_WRONG_ANSWERS)) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("answer", wrong.getAnswer());
+            item.put("count", wrong.getAnswerCount());
+            wrongByQuestion.computeIfAbsent(wrong.getQuestionId(), k -> new ArrayList<>()).add(item);
+        }
+        Map<Long, String> titles = new HashMap<>();
+        for (Question q : getExamQuestions(examId)) {
+            titles.put(q.getId(), q.getTitle());
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (QuestionItemStats stats : questionItemStatsMapper.findByExamId(examId)) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("questionId", stats.getQuestionId());
+            item.put("title", titles.get(stats.getQuestionId()));
+            item.put("responses", stats.getResponseCount());
+            item.put("correct", stats.getCorrectCount());
+            item.put("difficulty", stats.getResponseCount() > 0
+                    ? (double) stats.getCorrectCount() / stats.getResponseCount() : null);
+            item.put("discrimination", ItemStatsAccumulator.discrimination(stats));
+            item.put("topWrongAnswers", wrongByQuestion.getOrDefault(stats.getQuestionId(), new ArrayList<>()));
+            result.add(item);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public long backfillItemAnalysis(Long examId) {
+        questionItemStatsMapper.deleteItemStatsByExamId(examId);
+        questionItemStatsMapper.deleteWrongAnswersByExamId(examId);
+
+        ItemStatsAccumulator itemStats = new ItemStatsAccumulator();
+        long rows = 0;
+        try (Cursor<GradedResponse> cursor = questionItemStatsMapper.streamGradedResponses(examId)) {
+            for (GradedResponse response : cursor) {
+                if (CompiledAnswerKey.isOpenQuestion(response.getQuestionType())) {
+                    continue;
                 }
-                
-                Map<String, Object> reviewExam = new HashMap<>();
-                reviewExam.put("exam", exam);
-                reviewExam.put("priority", priority);
-                reviewExam.put("lastSubmitTime", lastSubmitTime);
-                reviewExam.put("lastPercentage", lastPercentage);
-                reviewExam.put("attemptCount", attempts.size());
-                reviewExam.put("nextReviewDate", stat.getNextReviewDate());
-                reviewExams.add(reviewExam);
+                double total = response.getPercentage() != null ? response.getPercentage().doubleValue() : 0;
+                itemStats.record(response.getExamId(), response.getQuestionId(),
+                        ItemStatsAccumulator.isCorrect(response.getCorrectAnswer(), response.getAnswer()),
+                        response.getAnswer(), total);
+                rows++;
             }
+        } catch (IOException e) {
+            throw new RuntimeException("回填题目分析失败", e);
         }
+        itemStats.flushTo(questionItemStatsMapper);
+        return rows;
+    }
 
-        if (reviewExams.isEmpty()) {
+    @Override
+    public List<QuestionSM2Stats> getDueQuestions(Long userId, int limit, boolean missedOnly) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<QuestionSM2Stats> due = questionSM2StatsMapper.findDueQuestions(userId, LocalDateTime.now(), missedOnly, limit);
+        for (QuestionSM2Stats stats : due) {
+            Question q = stats.getQuestion();
+            if (q != null && !isJsonArray(q.getOptionsJson())) {
+                q.setOptionsJson(null);
+            }
+        }
+        return due;
+    }
+
+    @Override
+    public List<Map<String, Object>> getReviewExams(Long userId, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<ReviewExam> dueExams = examSM2StatsMapper.findDueReviews(userId, LocalDateTime.now(), limit);
+        if (dueExams.isEmpty()) {
             return getReviewExamsFallback(userId, limit);
         }
 
-        reviewExams.sort((a, b) -> Double.compare((Double) b.get("priority"), (Double) a.get("priority")));
-        return reviewExams.stream().limit(limit).collect(java.util.stream.Collectors.toList());
+        return toReviewExamMaps(dueExams);
     }
 
     private List<Map<String, Object>> getReviewExamsFallback(Long userId, int limit) {
-        List<Map<String, Object>> statistics = examAttemptMapper.getReviewStatisticsByUserId(userId);
-        if (statistics == null || statistics.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime todayStart = now.toLocalDate().atStartOfDay();
-        List<Map<String, Object>> reviewExams = new ArrayList<>();
-        
-        for (Map<String, Object> stat : statistics) {
-            Object examIdObj = stat.get("exam_id");
-            if (examIdObj == null || !(examIdObj instanceof Number)) continue;
-            
-            Long examId = ((Number) examIdObj).longValue();
-            Object lastSubmitTimeObj = stat.get("last_submit_time");
-            
-            if (lastSubmitTimeObj != null) {
-                LocalDateTime lastSubmitTime = (LocalDateTime) lastSubmitTimeObj;
-                if (lastSubmitTime.isAfter(todayStart) || lastSubmitTime.isEqual(todayStart)) {
-                    continue;
-                }
-            }
-            
-            Exam exam = examMapper.findById(examId);
-            if (exam == null) continue;
-            
-            double priority = lastSubmitTimeObj == null ? 1.0 : 0.5;
-            
+        LocalDateTime todayStart = LocalDateTime.now().toLocalDate().atStartOfDay();
+        return toReviewExamMaps(examSM2StatsMapper.findReviewFallback(userId, todayStart, limit));
+    }
+
+    private List<Map<String, Object>> toReviewExamMaps(List<ReviewExam> items) {
+        List<Map<String, Object>> reviewExams = new ArrayList<>(items.size());
+        for (ReviewExam item : items) {
             Map<String, Object> reviewExam = new HashMap<>();
-            reviewExam.put("exam", exam);
-            reviewExam.put("priority", priority);
-            reviewExam.put("lastSubmitTime", lastSubmitTimeObj);
-            reviewExam.put("lastPercentage", stat.get("last_percentage"));
-            reviewExam.put("attemptCount", stat.getOrDefault("attempt_count", 0));
+            reviewExam.put("exam", item.getExam());
+            reviewExam.put("priority", item.getPriority());
+            reviewExam.put("lastSubmitTime", item.getLastSubmitTime());
+            reviewExam.put("lastPercentage", item.getLastPercentage() != null ?
+                item.getLastPercentage().doubleValue() : null);
+            reviewExam.put("attemptCount", item.getAttemptCount() != null ? item.getAttemptCount() : 0);
+            reviewExam.put("nextReviewDate", item.getNextReviewDate());
             reviewExams.add(reviewExam);
         }
-        
-        reviewExams.sort((a, b) -> Double.compare((Double) b.get("priority"), (Double) a.get("priority")));
-        return reviewExams.stream().limit(limit).collect(java.util.stream.Collectors.toList());
+        return reviewExams;
     }
 
+
+    private static final class GradedSubmission {
+        private ExamAttempt attempt;
+        private List<ExamAnswer> rows;
+        private byte[] outcomes;
+        private int pendingPoints;
+        private double percentageValue;
+
+        private Map<String, Object> toResult() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("totalScore", attempt.getTotalScore());
+            result.put("maxScore", attempt.getMaxScore());
+            result.put("percentage", percentageValue);
+            result.put("attemptId", attempt.getId());
+            result.put("pendingPoints", pendingPoints);
+            return result;
+        }
+    }
 }
 
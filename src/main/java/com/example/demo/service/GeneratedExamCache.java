@@ -0,0 +1,141 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.LruCache;
+import com.example.demo.mapper.AiExamCacheMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class GeneratedExamCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneratedExamCache.class);
+
+    private static final int PURGE_EVERY_PUTS = 100;
+    private static final int PURGE_BATCH_SIZE = 500;
+
+    @Autowired
+    private AiExamCacheMapper aiExamCacheMapper;
+
+    @Value("${ai.exam-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.exam-cache.max-size:500}")
+    private int maxSize;
+
+    @Value("${ai.exam-cache.ttl-hours:168}")
+    private long ttlHours;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong puts = new AtomicLong();
+    private LruCache<String, Entry> memory;
+
+    @PostConstruct
+    public void init() {
+        memory = new LruCache<>(maxSize);
+    }
+
+    public String keyOf(String promptVersion, String noteContent, int questionCount, String difficulty,
+                        Collection<String> selectedTypes) {
+        String normalizedNote = noteContent.replace("\r\n", "\n").trim().replaceAll("[ \\t]+", " ");
+        String normalizedTypes = String.join(",", new TreeSet<>(selectedTypes != null ? selectedTypes : List.of()));
+        String material = promptVersion + "\u0000" + questionCount + "\u0000"
+                + (difficulty != null ? difficulty.trim().toLowerCase(Locale.ROOT) : "") + "\u0000"
+                + normalizedTypes + "\u0000" + normalizedNote;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(material.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<Map<String, Object>> get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = memory.get(key);
+        if (entry != null && entry.expiresAt <= now) {
+            memory.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            Map<String, Object> row;
+            try {
+                row = aiExamCacheMapper.findValidByKey(key);
+            } catch (Exception e) {
+                log.warn("Generated exam cache lookup failed", e);
+                return null;
+            }
+            if (row == null) {
+                return null;
+            }
+            entry = new Entry((String) row.get("questions"), now + ((Number) row.get("ttlSeconds")).longValue() * 1000);
+            memory.put(key, entry);
+        }
+        List<Map<String, Object>> questions = parse(entry.questions);
+        if (questions == null) {
+            memory.remove(key);
+        }
+        return questions;
+    }
+
+    public void put(String key, Object questions) {
+        if (!enabled) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(questions);
+        } catch (Exception e) {
+            return;
+        }
+        long ttlSeconds = ttlHours * 3600;
+        memory.put(key, new Entry(json, System.currentTimeMillis() + ttlSeconds * 1000));
+        try {
+            aiExamCacheMapper.upsert(key, json, ttlSeconds);
+            if (puts.incrementAndGet() % PURGE_EVERY_PUTS == 0) {
+                aiExamCacheMapper.deleteExpired(PURGE_BATCH_SIZE);
+            }
+        } catch (Exception e) {
+            log.warn("Generated exam cache write failed", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>(memory.stats());
+        stats.put("enabled", enabled);
+        stats.put("ttlHours", ttlHours);
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> parse(String json) {
+        try {
+            return objectMapper.readValue(json, List.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private record Entry(String questions, long expiresAt) {
+    }
+}
+
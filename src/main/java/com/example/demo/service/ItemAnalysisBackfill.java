@@ -0,0 +1,59 @@
+package com.example.demo.service;
+
+import com.example.demo.mapper.QuestionItemStatsMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rebuilds item analysis from stored answers once at startup, one exam per transaction.
+ * Off by default; enable exam.item-analysis.backfill-on-startup for a single run after upgrading.
+ */
+@Component
+public class ItemAnalysisBackfill {
+
+    private static final int EXAM_PAGE_SIZE = 500;
+
+    private static final Logger log = LoggerFactory.getLogger(ItemAnalysisBackfill.class);
+
+    @Autowired
+    private ExamService examService;
+
+    @Autowired
+    private QuestionItemStatsMapper questionItemStatsMapper;
+
+    @Value("${exam.item-analysis.backfill-on-startup:false}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        long exams = 0;
+        long rows = 0;
+        Long after = null;
+        List<Long> page;
+        do {
+            page = questionItemStatsMapper.findExamIdsAfter(after, EXAM_PAGE_SIZE);
+            for (Long examId : page) {
+                try {
+                    rows += examService.backfillItemAnalysis(examId);
+                    exams++;
+                } catch (RuntimeException e) {
+                    log.warn("Item analysis backfill failed for exam {}", examId, e);
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1);
+            }
+        } while (page.size() == EXAM_PAGE_SIZE);
+        log.info("Item analysis backfill rebuilt {} exams from {} responses", exams, rows);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.QuestionItemStats;
+import com.example.demo.entity.QuestionWrongAnswer;
+import com.example.demo.mapper.QuestionItemStatsMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ItemStatsAccumulator {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_ANSWER_LENGTH = 191;
+
+    private final Map<Long, QuestionItemStats> items = new LinkedHashMap<>();
+    private final Map<String, QuestionWrongAnswer> wrongAnswers = new HashMap<>();
+
+    public static boolean isCorrect(String expected, String answer) {
+        return expected != null && answer != null && answer.trim().equalsIgnoreCase(expected.trim());
+    }
+
+    public static Double discrimination(QuestionItemStats stats) {
+        int n = stats.getResponseCount();
+        int c = stats.getCorrectCount();
+        if (n == 0 || c == 0 || c == n) {
+            return null;
+        }
+        double mean = stats.getSumTotal() / n;
+        double variance = stats.getSumTotalSquares() / n - mean * mean;
+        if (variance <= 0) {
+            return null;
+        }
+        double p = (double) c / n;
+        double meanCorrect = stats.getSumTotalCorrect() / c;
+        double meanWrong = (stats.getSumTotal() - stats.getSumTotalCorrect()) / (n - c);
+        return (meanCorrect - meanWrong) / Math.sqrt(variance) * Math.sqrt(p * (1 - p));
+    }
+
+    public void record(long examId, long questionId, boolean correct, String answer, double total) {
+        QuestionItemStats stats = items.get(questionId);
+        if (stats == null) {
+            stats = new QuestionItemStats();
+            stats.setQuestionId(questionId);
+            stats.setExamId(examId);
+            stats.setResponseCount(0);
+            stats.setCorrectCount(0);
+            stats.setSumTotal(0.0);
+            stats.setSumTotalSquares(0.0);
+            stats.setSumTotalCorrect(0.0);
+            items.put(questionId, stats);
+        }
+        stats.setResponseCount(stats.getResponseCount() + 1);
+        stats.setSumTotal(stats.getSumTotal() + total);
+        stats.setSumTotalSquares(stats.getSumTotalSquares() + total * total);
+        if (correct) {
+            stats.setCorrectCount(stats.getCorrectCount() + 1);
+            stats.setSumTotalCorrect(stats.getSumTotalCorrect() + total);
+            return;
+        }
+
+        String normalized = answer != null ? answer.trim() : "";
+        if (normalized.isEmpty()) {
+            return;
+        }
+        if (normalized.length() > MAX_ANSWER_LENGTH) {
+            normalized = normalized.substring(0, MAX_ANSWER_LENGTH);
+        }
+        String key = questionId + ":" + normalized.toLowerCase();
+        QuestionWrongAnswer wrong = wrongAnswers.get(key);
+        if (wrong == null) {
+            wrong = new QuestionWrongAnswer();
+            wrong.setQuestionId(questionId);
+            wrong.setExamId(examId);
+            wrong.setAnswer(normalized);
+            wrong.setAnswerCount(0);
+            wrongAnswers.put(key, wrong);
+        }
+        wrong.setAnswerCount(wrong.getAnswerCount() + 1);
+    }
+
+    public void flushTo(QuestionItemStatsMapper mapper) {
+        List<QuestionItemStats> itemRows = new ArrayList<>(items.values());
+        for (int from = 0; from < itemRows.size(); from += BATCH_SIZE) {
+            mapper.batchApplyDelta(itemRows.subList(from, Math.min(from + BATCH_SIZE, itemRows.size())));
+        }
+        List<QuestionWrongAnswer> wrongRows = new ArrayList<>(wrongAnswers.values());
+        for (int from = 0; from < wrongRows.size(); from += BATCH_SIZE) {
+            mapper.batchApplyWrongAnswers(wrongRows.subList(from, Math.min(from + BATCH_SIZE, wrongRows.size())));
+        }
+        items.clear();
+        wrongAnswers.clear();
+    }
+}
+
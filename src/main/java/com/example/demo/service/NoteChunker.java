@@ -0,0 +1,104 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public final class NoteChunker {
+
+    public static final char PAGE_BREAK = '\f';
+
+    private static final Pattern HEADING = Pattern.compile(
+            "^\\s*(#{1,6}\\s+\\S.*"
+                    + "|--- 文件: .* ---"
+                    + "|第[0-9一二三四五六七八九十百]+[章节篇讲部分].{0,60}"
+                    + "|(?i:chapter|section|lecture|part)\\s+[0-9IVXLC]+\\b.{0,60}"
+                    + "|[0-9]{1,2}(\\.[0-9]{1,2}){0,2}\\.?\\s+[^\\s0-9].{0,60})\\s*$");
+
+    private NoteChunker() {
+    }
+
+    public static List<String> split(String text, int maxChars) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String segment : segments(text)) {
+            if (segment.length() > maxChars) {
+                flush(current, chunks);
+                for (String piece : hardSplit(segment, maxChars)) {
+                    addChunk(piece, chunks);
+                }
+                continue;
+            }
+            if (current.length() + segment.length() > maxChars) {
+                flush(current, chunks);
+            }
+            current.append(segment);
+        }
+        flush(current, chunks);
+        return chunks;
+    }
+
+    public static boolean isHeading(String line) {
+        return line.length() <= 80 && HEADING.matcher(line).matches();
+    }
+
+    private static List<String> segments(String text) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder segment = new StringBuilder();
+        int start = 0;
+        int length = text.length();
+        while (start < length) {
+            int end = start;
+            while (end < length && text.charAt(end) != '\n' && text.charAt(end) != PAGE_BREAK) {
+                end++;
+            }
+            String line = text.substring(start, end);
+            if (isHeading(line) && segment.length() > 0) {
+                segments.add(segment.toString());
+                segment.setLength(0);
+            }
+            segment.append(line).append('\n');
+            if (end < length && text.charAt(end) == PAGE_BREAK && segment.length() > 0) {
+                segments.add(segment.toString());
+                segment.setLength(0);
+            }
+            start = end + 1;
+        }
+        if (segment.length() > 0) {
+            segments.add(segment.toString());
+        }
+        return segments;
+    }
+
+    private static List<String> hardSplit(String segment, int maxChars) {
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        while (segment.length() - start > maxChars) {
+            int limit = start + maxChars;
+            int cut = segment.lastIndexOf("\n\n", limit);
+            if (cut <= start + maxChars / 2) {
+                cut = segment.lastIndexOf('\n', limit);
+            }
+            if (cut <= start + maxChars / 2) {
+                cut = limit;
+            }
+            pieces.add(segment.substring(start, cut));
+            start = cut;
+        }
+        pieces.add(segment.substring(start));
+        return pieces;
+    }
+
+    private static void flush(StringBuilder current, List<String> chunks) {
+        addChunk(current.toString(), chunks);
+        current.setLength(0);
+    }
+
+    private static void addChunk(String chunk, List<String> chunks) {
+        String trimmed = chunk.trim();
+        if (!trimmed.isEmpty()) {
+            chunks.add(trimmed);
+        }
+    }
+}
+
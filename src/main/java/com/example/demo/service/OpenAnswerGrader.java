@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.OpenAnswerTask;
+
+import java.util.List;
+import java.util.Map;
+
+public interface OpenAnswerGrader {
+    Map<Long, Integer> grade(List<OpenAnswerTask> tasks) throws Exception;
+}
+
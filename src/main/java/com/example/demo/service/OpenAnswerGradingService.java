@@ -0,0 +1,286 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.ExamAnswer;
+import com.example.demo.entity.ExamAttempt;
+import com.example.demo.entity.OpenAnswerTask;
+import com.example.demo.mapper.ExamAnswerMapper;
+import com.example.demo.mapper.ExamAttemptMapper;
+import com.example.demo.mapper.ExamSM2StatsMapper;
+import com.example.demo.mapper.ExamScoreStatsMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class OpenAnswerGradingService {
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_FAILED = "failed";
+
+    private static final int RESUME_PAGE_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAnswerGradingService.class);
+
+    @Autowired
+    private OpenAnswerGrader grader;
+
+    @Autowired
+    private ExamAnswerMapper examAnswerMapper;
+
+    @Autowired
+    private ExamAttemptMapper examAttemptMapper;
+
+    @Autowired
+    private ExamSM2StatsMapper examSM2StatsMapper;
+
+    @Autowired
+    private ExamScoreStatsMapper examScoreStatsMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${exam.grading.batch-size:20}")
+    private int batchSize;
+
+    @Value("${exam.grading.linger-ms:500}")
+    private long lingerMs;
+
+    @Value("${exam.grading.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${exam.grading.retry-base-ms:2000}")
+    private long retryBaseMs;
+
+    @Value("${exam.grading.retry-max-ms:300000}")
+    private long retryMaxMs;
+
+    private final BlockingQueue<Long> attemptQueue = new LinkedBlockingQueue<>();
+    private final Map<Long, Integer> failedRuns = new ConcurrentHashMap<>();
+    private Thread worker;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "open-answer-grader");
+        worker.setDaemon(true);
+        worker.start();
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "open-answer-grader-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        worker.interrupt();
+        retryScheduler.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        Long after = null;
+        List<Long> page;
+        do {
+            page = examAnswerMapper.findPendingAttemptIds(after, RESUME_PAGE_SIZE);
+            attemptQueue.addAll(page);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1);
+            }
+        } while (page.size() == RESUME_PAGE_SIZE);
+    }
+
+    public void enqueue(Long attemptId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    attemptQueue.offer(attemptId);
+                }
+            });
+        } else {
+            attemptQueue.offer(attemptId);
+        }
+    }
+
+    public int getQueueSize() {
+        return attemptQueue.size();
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                Set<Long> attemptIds = new LinkedHashSet<>();
+                attemptIds.add(attemptQueue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (attemptIds.size() < batchSize) {
+                    Long next = attemptQueue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    attemptIds.add(next);
+                }
+                gradeAttempts(attemptIds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Open answer grading loop failed", e);
+            }
+        }
+    }
+
+    private void gradeAttempts(Set<Long> attemptIds) {
+        List<OpenAnswerTask> tasks;
+        try {
+            tasks = examAnswerMapper.findPendingOpenAnswers(attemptIds);
+        } catch (Exception e) {
+            log.warn("Loading pending open answers failed for attempts {}", attemptIds, e);
+            retryLater(attemptIds);
+            return;
+        }
+
+        Set<Long> failed = new LinkedHashSet<>();
+        for (int from = 0; from < tasks.size(); from += batchSize) {
+            List<OpenAnswerTask> batch = tasks.subList(from, Math.min(from + batchSize, tasks.size()));
+            try {
+                failed.addAll(applyScores(batch, grader.grade(batch)));
+            } catch (Exception e) {
+                log.warn("Open answer grading batch failed", e);
+                for (OpenAnswerTask task : batch) {
+                    failed.add(task.getAttemptId());
+                }
+            }
+        }
+        for (Long attemptId : attemptIds) {
+            if (!failed.contains(attemptId)) {
+                failedRuns.remove(attemptId);
+            }
+        }
+        retryLater(failed);
+    }
+
+    private void retryLater(Set<Long> attemptIds) {
+        List<Long> exhausted = new ArrayList<>();
+        for (Long attemptId : attemptIds) {
+            int runs = failedRuns.merge(attemptId, 1, Integer::sum);
+            if (runs >= maxAttempts) {
+                exhausted.add(attemptId);
+                continue;
+            }
+            long backoff = Math.min(retryMaxMs, retryBaseMs << Math.min(runs - 1, 20));
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            try {
+                retryScheduler.schedule(() -> attemptQueue.offer(attemptId), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+        if (exhausted.isEmpty()) {
+            return;
+        }
+        try {
+            failAttempts(exhausted);
+            log.warn("Open answer grading gave up after {} attempts for attempts {}", maxAttempts, exhausted);
+        } catch (Exception e) {
+            log.warn("Marking open answers as failed did not succeed for attempts {}", exhausted, e);
+        }
+        exhausted.forEach(failedRuns::remove);
+    }
+
+    private Set<Long> applyScores(List<OpenAnswerTask> batch, Map<Long, Integer> scores) {
+        List<ExamAnswer> graded = new ArrayList<>(batch.size());
+        Map<Long, int[]> attemptDeltas = new LinkedHashMap<>();
+        Set<Long> incomplete = new LinkedHashSet<>();
+        for (OpenAnswerTask task : batch) {
+            Integer score = scores != null ? scores.get(task.getAnswerId()) : null;
+            if (score == null) {
+                incomplete.add(task.getAttemptId());
+                continue;
+            }
+            int points = task.getPoints() != null ? task.getPoints() : 0;
+            int clamped = Math.max(0, Math.min(points, score));
+
+            ExamAnswer answer = new ExamAnswer();
+            answer.setId(task.getAnswerId());
+            answer.setScore(clamped);
+            graded.add(answer);
+
+            int[] delta = attemptDeltas.computeIfAbsent(task.getAttemptId(), id -> new int[2]);
+            delta[0] += clamped;
+            delta[1] += points;
+        }
+        if (graded.isEmpty()) {
+            return incomplete;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            examAnswerMapper.batchUpdateGradedScores(graded);
+            applyAttemptDeltas(attemptDeltas);
+        });
+        return incomplete;
+    }
+
+    /**
+     * Gives up on the remaining open answers: they score 0 and their points go back into max_score,
+     * so the attempt percentage, histogram and SM2 stats move exactly as if they had been graded 0.
+     */
+    private void failAttempts(List<Long> attemptIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, int[]> attemptDeltas = new LinkedHashMap<>();
+            for (OpenAnswerTask task : examAnswerMapper.findPendingOpenAnswers(attemptIds)) {
+                attemptDeltas.computeIfAbsent(task.getAttemptId(), id -> new int[2])[1] +=
+                        task.getPoints() != null ? task.getPoints() : 0;
+            }
+            examAnswerMapper.markGradingFailed(attemptIds);
+            applyAttemptDeltas(attemptDeltas);
+        });
+    }
+
+    private void applyAttemptDeltas(Map<Long, int[]> attemptDeltas) {
+        if (attemptDeltas.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Long, int[]> entry : attemptDeltas.entrySet()) {
+            ExamAttempt before = examAttemptMapper.findById(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            examAttemptMapper.addGradedScore(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+            ExamAttempt after = examAttemptMapper.findById(entry.getKey());
+            double from = before.getPercentage().doubleValue();
+            double to = after.getPercentage().doubleValue();
+            examScoreStatsMapper.applyDelta(before.getExamId(), 0, to - from, to * to - from * from,
+                    ScoreHistogram.move(from, to));
+        }
+        examSM2StatsMapper.syncLastPercentage(attemptDeltas.keySet());
+    }
+}
+
@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ScoreHistogram {
+
+    public static final int BUCKETS = 10;
+    private static final double BUCKET_WIDTH = 100.0 / BUCKETS;
+    private static final double[] PERCENTILES = {0.1, 0.25, 0.5, 0.75, 0.9};
+
+    private ScoreHistogram() {
+    }
+
+    public static int bucketOf(double percentage) {
+        int bucket = (int) Math.floor(percentage / BUCKET_WIDTH);
+        return Math.max(0, Math.min(BUCKETS - 1, bucket));
+    }
+
+    public static int[] add(double percentage) {
+        int[] deltas = new int[BUCKETS];
+        deltas[bucketOf(percentage)]++;
+        return deltas;
+    }
+
+    public static int[] move(double from, double to) {
+        int[] deltas = new int[BUCKETS];
+        deltas[bucketOf(from)]--;
+        deltas[bucketOf(to)]++;
+        return deltas;
+    }
+
+    public static Map<String, Object> summarize(Map<String, Object> row) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        long count = row != null ? ((Number) row.get("attemptCount")).longValue() : 0;
+        summary.put("count", count);
+        if (count == 0) {
+            summary.put("mean", null);
+            summary.put("variance", null);
+            summary.put("stdDev", null);
+            summary.put("percentiles", new LinkedHashMap<>());
+            summary.put("histogram", new ArrayList<>());
+            return summary;
+        }
+
+        double mean = ((Number) row.get("sumPercentage")).doubleValue() / count;
+        double variance = Math.max(0, ((Number) row.get("sumSquares")).doubleValue() / count - mean * mean);
+        summary.put("mean", round(mean));
+        summary.put("variance", round(variance));
+        summary.put("stdDev", round(Math.sqrt(variance)));
+
+        long[] buckets = new long[BUCKETS];
+        List<Map<String, Object>> histogram = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = ((Number) row.get("b" + i)).longValue();
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("from", i * BUCKET_WIDTH);
+            bucket.put("to", (i + 1) * BUCKET_WIDTH);
+            bucket.put("count", buckets[i]);
+            histogram.add(bucket);
+        }
+
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        for (double p : PERCENTILES) {
+            percentiles.put("p" + Math.round(p * 100), round(estimatePercentile(buckets, count, p)));
+        }
+        summary.put("percentiles", percentiles);
+        summary.put("histogram", histogram);
+        return summary;
+    }
+
+    private static double estimatePercentile(long[] buckets, long count, double p) {
+        double rank = p * count;
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (buckets[i] > 0 && cumulative + buckets[i] >= rank) {
+                return i * BUCKET_WIDTH + (rank - cumulative) / buckets[i] * BUCKET_WIDTH;
+            }
+            cumulative += buckets[i];
+        }
+        return 100.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
+
@@ -0,0 +1,39 @@
+package com.example.demo.service;
+
+public final class Sm2Scheduler {
+
+    public static final double INITIAL_EASE_FACTOR = 2.5;
+    public static final double MIN_EASE_FACTOR = 1.3;
+    public static final int INITIAL_INTERVAL_DAYS = 1;
+
+    private Sm2Scheduler() {
+    }
+
+    public static int qualityFromPercentage(double percentage) {
+        if (percentage >= 90) return 5;
+        if (percentage >= 70) return 4;
+        if (percentage >= 50) return 3;
+        if (percentage >= 30) return 2;
+        if (percentage > 0) return 1;
+        return 0;
+    }
+
+    public static double nextEaseFactor(double easeFactor, int quality) {
+        if (quality < 3) {
+            return easeFactor;
+        }
+        int miss = 5 - quality;
+        return Math.max(MIN_EASE_FACTOR, easeFactor + (0.1 - miss * (0.08 + miss * 0.02)));
+    }
+
+    public static int nextIntervalDays(int intervalDays, double nextEaseFactor, int quality) {
+        if (quality < 3) {
+            return 1;
+        }
+        if (intervalDays == 1) {
+            return 6;
+        }
+        return (int) (intervalDays * nextEaseFactor);
+    }
+}
+
@@ -0,0 +1,52 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.OpenAnswerTask;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+@ConditionalOnProperty(name = "exam.grading.provider", havingValue = "stub")
+public class StubOpenAnswerGrader implements OpenAnswerGrader {
+
+    @Override
+    public Map<Long, Integer> grade(List<OpenAnswerTask> tasks) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (OpenAnswerTask task : tasks) {
+            int points = task.getPoints() != null ? task.getPoints() : 0;
+            result.put(task.getAnswerId(), (int) Math.round(points * overlap(task.getReferenceAnswer(), task.getAnswer())));
+        }
+        return result;
+    }
+
+    private double overlap(String reference, String answer) {
+        Set<Integer> expected = codePoints(reference);
+        if (expected.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> actual = codePoints(answer);
+        int matched = 0;
+        for (Integer cp : expected) {
+            if (actual.contains(cp)) {
+                matched++;
+            }
+        }
+        return (double) matched / expected.size();
+    }
+
+    private Set<Integer> codePoints(String text) {
+        Set<Integer> set = new HashSet<>();
+        if (text != null) {
+            text.toLowerCase().codePoints()
+                    .filter(Character::isLetterOrDigit)
+                    .forEach(set::add);
+        }
+        return set;
+    }
+}
+
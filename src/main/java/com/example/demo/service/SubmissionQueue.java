@@ -0,0 +1,205 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.ExamSubmission;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class SubmissionQueue {
+
+    @Autowired
+    private ExamService examService;
+
+    @Value("${exam.submission-queue.capacity:1000}")
+    private int capacity;
+
+    @Value("${exam.submission-queue.batch-size:50}")
+    private int batchSize;
+
+    @Value("${exam.submission-queue.linger-ms:20}")
+    private long lingerMs;
+
+    @Value("${exam.submission-queue.workers:2}")
+    private int workerCount;
+
+    @Value("${exam.submission-queue.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    @Value("${exam.submission-queue.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    private final BlockingQueue<PendingSubmission> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private Semaphore permits;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        permits = new Semaphore(capacity);
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::drainLoop, "exam-submission-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    public CompletableFuture<Map<String, Object>> submit(ExamSubmission submission) {
+        return submitAll(List.of(submission)).get(0);
+    }
+
+    public List<CompletableFuture<Map<String, Object>>> submitAll(List<ExamSubmission> submissions) {
+        if (submissions.size() > capacity) {
+            throw new IllegalArgumentException("批量提交数量超过队列容量 " + capacity);
+        }
+        if (!permits.tryAcquire(submissions.size())) {
+            rejected.increment();
+            throw new SubmissionRejectedException(retryAfterSeconds);
+        }
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>(submissions.size());
+        for (ExamSubmission submission : submissions) {
+            PendingSubmission pending = new PendingSubmission(submission);
+            futures.add(pending.future);
+            queue.add(pending);
+        }
+        return futures;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public long getWaitTimeoutMs() {
+        return waitTimeoutMs;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("capacity", capacity);
+        stats.put("available", permits.availablePermits());
+        stats.put("rejected", rejected.sum());
+        stats.put("batches", batches.sum());
+        stats.put("processed", processed.sum());
+        return stats;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            List<PendingSubmission> drained = new ArrayList<>(batchSize);
+            try {
+                drained.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (drained.size() < batchSize) {
+                    PendingSubmission next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    drained.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failAll(drained, e);
+                return;
+            }
+
+            Map<Long, List<PendingSubmission>> byExam = new LinkedHashMap<>();
+            for (PendingSubmission pending : drained) {
+                byExam.computeIfAbsent(pending.submission.getExamId(), k -> new ArrayList<>()).add(pending);
+            }
+            for (Map.Entry<Long, List<PendingSubmission>> entry : byExam.entrySet()) {
+                process(entry.getKey(), entry.getValue());
+            }
+            permits.release(drained.size());
+        }
+    }
+
+    private void process(Long examId, List<PendingSubmission> group) {
+        batches.increment();
+        List<ExamSubmission> submissions = new ArrayList<>(group.size());
+        for (PendingSubmission pending : group) {
+            submissions.add(pending.submission);
+        }
+        try {
+            List<Map<String, Object>> results = examService.submitExamBatch(examId, submissions);
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).future.complete(results.get(i));
+            }
+            processed.add(group.size());
+            return;
+        } catch (Exception e) {
+            if (group.size() == 1) {
+                group.get(0).future.completeExceptionally(e);
+                return;
+            }
+        }
+
+        for (PendingSubmission pending : group) {
+            ExamSubmission s = pending.submission;
+            try {
+                pending.future.complete(examService.submitExam(
+                        s.getExamId(), s.getUserId(), s.getAnswers(), null, s.getIdempotencyKey()));
+                processed.increment();
+            } catch (Exception e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void failAll(List<PendingSubmission> drained, Exception e) {
+        for (PendingSubmission pending : drained) {
+            pending.future.completeExceptionally(e);
+        }
+        permits.release(drained.size());
+    }
+
+    private static final class PendingSubmission {
+        private final ExamSubmission submission;
+        private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+
+        private PendingSubmission(ExamSubmission submission) {
+            this.submission = submission;
+        }
+    }
+
+    public static class SubmissionRejectedException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public SubmissionRejectedException(int retryAfterSeconds) {
+            super("提交人数过多，请稍后重试");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
+
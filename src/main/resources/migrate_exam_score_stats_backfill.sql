@@ -0,0 +1,21 @@
+
+
+INSERT IGNORE INTO exam_score_stats (exam_id, attempt_count, sum_percentage, sum_squares,
+                                     b0, b1, b2, b3, b4, b5, b6, b7, b8, b9)
+SELECT exam_id,
+       COUNT(*),
+       SUM(percentage),
+       SUM(percentage * percentage),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 0),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 1),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 2),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 3),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 4),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 5),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 6),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 7),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 8),
+       SUM(LEAST(FLOOR(percentage / 10), 9) = 9)
+FROM exam_attempts
+WHERE NOT EXISTS (SELECT 1 FROM exam_score_stats)
+GROUP BY exam_id;
@@ -0,0 +1,52 @@
+
+
+SET @dbname = DATABASE();
+SET @tablename = 'exam_sm2_stats';
+SET @hadAttemptSummary = (
+  SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE
+    (TABLE_SCHEMA = @dbname)
+    AND (TABLE_NAME = @tablename)
+    AND (COLUMN_NAME = 'attempt_count')
+);
+
+SET @preparedStatement = (SELECT IF(
+  @hadAttemptSummary > 0,
+  'SELECT 1',
+  CONCAT('ALTER TABLE ', @tablename,
+         ' ADD COLUMN last_attempt_id BIGINT,',
+         ' ADD COLUMN last_percentage DECIMAL(5, 2),',
+         ' ADD COLUMN last_submit_time DATETIME,',
+         ' ADD COLUMN attempt_count INT NOT NULL DEFAULT 0')
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+SET @preparedStatement = (SELECT IF(
+  @hadAttemptSummary > 0,
+  'SELECT 1',
+  CONCAT('INSERT IGNORE INTO exam_sm2_stats (exam_id, user_id, ease_factor, interval_days, last_review_date, next_review_date)',
+         ' SELECT a.exam_id, a.user_id, 2.50, 1, MAX(a.submit_time), DATE_ADD(MAX(a.submit_time), INTERVAL 1 DAY)',
+         ' FROM exam_attempts a',
+         ' GROUP BY a.exam_id, a.user_id')
+));
+PREPARE backfillIfAdded FROM @preparedStatement;
+EXECUTE backfillIfAdded;
+DEALLOCATE PREPARE backfillIfAdded;
+
+SET @preparedStatement = (SELECT IF(
+  @hadAttemptSummary > 0,
+  'SELECT 1',
+  CONCAT('UPDATE exam_sm2_stats s',
+         ' JOIN (SELECT exam_id, user_id, COUNT(*) AS attempt_count, MAX(submit_time) AS last_submit_time',
+         ' FROM exam_attempts GROUP BY exam_id, user_id) agg',
+         ' ON agg.exam_id = s.exam_id AND agg.user_id = s.user_id',
+         ' JOIN exam_attempts la ON la.exam_id = s.exam_id AND la.user_id = s.user_id AND la.submit_time = agg.last_submit_time',
+         ' SET s.last_attempt_id = la.id, s.last_percentage = la.percentage,',
+         ' s.last_submit_time = agg.last_submit_time, s.attempt_count = agg.attempt_count',
+         ' WHERE s.last_attempt_id IS NULL')
+));
+PREPARE backfillIfAdded FROM @preparedStatement;
+EXECUTE backfillIfAdded;
+DEALLOCATE PREPARE backfillIfAdded;
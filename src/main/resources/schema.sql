@@ -88,34 +88,43 @@ CREATE TABLE IF NOT EXISTS questions (
     INDEX idx_exam_id (exam_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
-CREATE TABLE IF NOT EXISTS exam_answers (
+CREATE TABLE IF NOT EXISTS exam_attempts (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     exam_id BIGINT NOT NULL,
     user_id BIGINT NOT NULL,
-    question_id BIGINT NOT NULL,
-    answer TEXT,
-    score INT DEFAULT 0,
+    total_score INT DEFAULT 0,
+    max_score INT DEFAULT 0,
+    percentage DECIMAL(5, 2) DEFAULT 0.00,
     submit_time DATETIME NOT NULL,
+    idempotency_key VARCHAR(64),
     FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
-    FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_user_idempotency (user_id, idempotency_key),
     INDEX idx_exam_id (exam_id),
-    INDEX idx_user_id (user_id)
+    INDEX idx_user_id (user_id),
+    INDEX idx_submit_time (submit_time),
+    INDEX idx_exam_user_submit (exam_id, user_id, submit_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
-CREATE TABLE IF NOT EXISTS exam_attempts (
+CREATE TABLE IF NOT EXISTS exam_answers (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     exam_id BIGINT NOT NULL,
     user_id BIGINT NOT NULL,
-    total_score INT DEFAULT 0,
-    max_score INT DEFAULT 0,
-    percentage DECIMAL(5, 2) DEFAULT 0.00,
+    question_id BIGINT NOT NULL,
+    attempt_id BIGINT,
+    answer TEXT,
+    score INT DEFAULT 0,
+    grading_status VARCHAR(20),
     submit_time DATETIME NOT NULL,
     FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE,
+    FOREIGN KEY (attempt_id) REFERENCES exam_attempts(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_attempt_question (attempt_id, question_id),
+    INDEX idx_exam_user_attempt (exam_id, user_id, attempt_id),
+    INDEX idx_grading_status (grading_status, attempt_id),
     INDEX idx_exam_id (exam_id),
-    INDEX idx_user_id (user_id),
-    INDEX idx_submit_time (submit_time)
+    INDEX idx_user_id (user_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE IF NOT EXISTS exam_sm2_stats (
@@ -126,10 +135,84 @@ CREATE TABLE IF NOT EXISTS exam_sm2_stats (
     interval_days INT DEFAULT 1,
     last_review_date DATETIME,
     next_review_date DATETIME,
+    last_attempt_id BIGINT,
+    last_percentage DECIMAL(5, 2),
+    last_submit_time DATETIME,
+    attempt_count INT NOT NULL DEFAULT 0,
+    version INT NOT NULL DEFAULT 0,
     FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     UNIQUE KEY uk_exam_user (exam_id, user_id),
     INDEX idx_user_id (user_id),
-    INDEX idx_next_review_date (next_review_date)
+    INDEX idx_next_review_date (next_review_date),
+    INDEX idx_user_next_review (user_id, next_review_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS exam_score_stats (
+    exam_id BIGINT PRIMARY KEY,
+    attempt_count INT NOT NULL DEFAULT 0,
+    sum_percentage DOUBLE NOT NULL DEFAULT 0,
+    sum_squares DOUBLE NOT NULL DEFAULT 0,
+    b0 INT NOT NULL DEFAULT 0,
+    b1 INT NOT NULL DEFAULT 0,
+    b2 INT NOT NULL DEFAULT 0,
+    b3 INT NOT NULL DEFAULT 0,
+    b4 INT NOT NULL DEFAULT 0,
+    b5 INT NOT NULL DEFAULT 0,
+    b6 INT NOT NULL DEFAULT 0,
+    b7 INT NOT NULL DEFAULT 0,
+    b8 INT NOT NULL DEFAULT 0,
+    b9 INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS question_item_stats (
+    question_id BIGINT PRIMARY KEY,
+    exam_id BIGINT NOT NULL,
+    response_count INT NOT NULL DEFAULT 0,
+    correct_count INT NOT NULL DEFAULT 0,
+    sum_total DOUBLE NOT NULL DEFAULT 0,
+    sum_total_squares DOUBLE NOT NULL DEFAULT 0,
+    sum_total_correct DOUBLE NOT NULL DEFAULT 0,
+    FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE,
+    FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
+    INDEX idx_exam_id (exam_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS question_wrong_answers (
+    question_id BIGINT NOT NULL,
+    answer VARCHAR(191) NOT NULL,
+    exam_id BIGINT NOT NULL,
+    answer_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (question_id, answer),
+    FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE,
+    FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
+    INDEX idx_exam_id (exam_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS question_sm2_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    question_id BIGINT NOT NULL,
+    exam_id BIGINT NOT NULL,
+    ease_factor DOUBLE NOT NULL DEFAULT 2.5,
+    interval_days INT NOT NULL DEFAULT 1,
+    lapse_count INT NOT NULL DEFAULT 0,
+    last_quality TINYINT NOT NULL DEFAULT 0,
+    last_review_date DATETIME,
+    next_review_date DATETIME NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE,
+    FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_user_question (user_id, question_id),
+    INDEX idx_user_next_review (user_id, next_review_date, lapse_count)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS ai_exam_cache (
+    cache_key CHAR(64) PRIMARY KEY,
+    questions MEDIUMTEXT NOT NULL,
+    created_at DATETIME NOT NULL,
+    expires_at DATETIME NOT NULL,
+    INDEX idx_expires_at (expires_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
@@ -0,0 +1,436 @@
+package com.example.demo.ai;
+
+import com.example.demo.config.AiHttpClientConfig;
+import com.example.demo.controller.AiController;
+import com.example.demo.controller.ExamController;
+import com.example.demo.entity.Exam;
+import com.example.demo.mapper.AiExamCacheMapper;
+import com.example.demo.service.AiGateway;
+import com.example.demo.service.AiResilience;
+import com.example.demo.service.DocumentTextExtractor;
+import com.example.demo.service.ExamService;
+import com.example.demo.service.GeneratedExamCache;
+import com.example.demo.service.SubmissionQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringJUnitConfig(classes = {
+        AiHttpClientConfig.class, AiGateway.class, AiResilience.class, GeneratedExamCache.class,
+        DocumentTextExtractor.class, AiController.class, ExamController.class})
+class AiPipelineLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AiPipelineLoadTest.class);
+
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 100);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 16);
+
+    private static FakeChatCompletionServer fake;
+
+    @MockBean
+    private ExamService examService;
+
+    @MockBean
+    private SubmissionQueue submissionQueue;
+
+    @MockBean
+    private AiExamCacheMapper aiExamCacheMapper;
+
+    @Autowired
+    private AiController aiController;
+
+    @Autowired
+    private ExamController examController;
+
+    @Autowired
+    private AiGateway aiGateway;
+
+    @Autowired
+    private DocumentTextExtractor documentTextExtractor;
+
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void aiProperties(DynamicPropertyRegistry registry) throws IOException {
+        fake = new FakeChatCompletionServer();
+        String cacheDir = Files.createTempDirectory("extract-cache").toString();
+        registry.add("deepseek.api.key", () -> "test-key");
+        registry.add("deepseek.api.base-url", fake::baseUrl);
+        registry.add("ai.note.chunk-chars", () -> 2000);
+        registry.add("ai.extract.cache.dir", () -> cacheDir);
+        registry.add("ai.resilience.base-backoff-ms", () -> 10);
+        registry.add("ai.resilience.max-backoff-ms", () -> 50);
+        registry.add("ai.resilience.minimum-calls", () -> 1000);
+    }
+
+    @AfterAll
+    static void stopFake() {
+        fake.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        fake.reset();
+        mockMvc = MockMvcBuilders.standaloneSetup(aiController).build();
+        when(aiExamCacheMapper.findValidByKey(anyString())).thenReturn(null);
+        when(examService.createExamFromAI(any(), any(), anyString(), anyInt(), anyString(), anyList(), any()))
+                .thenAnswer(invocation -> {
+                    Exam exam = new Exam();
+                    exam.setId(1L);
+                    exam.setQuestions(new ArrayList<>());
+                    return exam;
+                });
+    }
+
+    @Test
+    void generateExamParsesStandInResponseAndCachesIt() throws Exception {
+        Map<String, Object> request = examRequest("缓存测试笔记内容", false);
+
+        ResponseEntity<Map<String, Object>> first = aiController.generateExam(request).get(30, TimeUnit.SECONDS);
+        ResponseEntity<Map<String, Object>> second = aiController.generateExam(request).get(30, TimeUnit.SECONDS);
+
+        assertEquals(200, first.getStatusCode().value());
+        assertEquals(3, ((List<?>) first.getBody().get("questions")).size());
+        assertEquals(false, first.getBody().get("cached"));
+        assertEquals(true, second.getBody().get("cached"));
+        assertEquals(1, fake.requestCount());
+    }
+
+    @Test
+    void malformedAndTruncatedResponsesFailCleanly() throws Exception {
+        fake.mode(FakeChatCompletionServer.Mode.MALFORMED_JSON);
+        ResponseEntity<Map<String, Object>> malformed =
+                aiController.generateExam(examRequest("格式错误", true)).get(30, TimeUnit.SECONDS);
+        assertEquals(500, malformed.getStatusCode().value());
+        assertTrue(String.valueOf(malformed.getBody().get("error")).startsWith("生成试卷失败"));
+
+        fake.mode(FakeChatCompletionServer.Mode.TRUNCATED);
+        ResponseEntity<Map<String, Object>> truncated =
+                aiController.generateExam(examRequest("截断", true)).get(30, TimeUnit.SECONDS);
+        assertEquals(500, truncated.getStatusCode().value());
+    }
+
+    @Test
+    void transientProviderFailuresAreRetried() throws Exception {
+        fake.failNext(2);
+        Map<String, Object> request = new HashMap<>();
+        request.put("messages", List.of(Map.of("role", "user", "content", "hello")));
+
+        ResponseEntity<Map<String, Object>> response = aiController.chat(request).get(30, TimeUnit.SECONDS);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(2, fake.failuresInjected());
+        assertEquals(3, fake.requestCount());
+    }
+
+    @Test
+    void streamingModeSendsDeltasAndDone() throws Exception {
+        MvcResult result = startChatStream();
+        awaitStreamCompletion(result);
+
+        List<String[]> events = sseEvents(result);
+        StringBuilder content = new StringBuilder();
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (String[] event : events.subList(0, events.size() - 1)) {
+            assertEquals("delta", event[0]);
+            content.append(objectMapper.readValue(event[1], Map.class).get("content"));
+        }
+        assertTrue(events.size() > 2);
+        assertEquals("done", events.get(events.size() - 1)[0]);
+        assertEquals("[DONE]", events.get(events.size() - 1)[1]);
+        assertTrue(content.toString().startsWith("## Notes"));
+        assertEquals(0, aiGateway.stats().get("activeStreams"));
+    }
+
+    @Test
+    void streamingReportsRejectedApiKey() throws Exception {
+        fake.mode(FakeChatCompletionServer.Mode.UNAUTHORIZED);
+
+        MvcResult result = startChatStream();
+        awaitStreamCompletion(result);
+
+        List<String[]> events = sseEvents(result);
+        assertEquals(1, events.size());
+        assertEquals("error", events.get(0)[0]);
+        assertTrue(events.get(0)[1].contains("API Key 无效或已过期"));
+        assertEquals(0, aiGateway.stats().get("activeStreams"));
+    }
+
+    @Test
+    void streamingReportsMalformedChunkAndCloses() throws Exception {
+        fake.mode(FakeChatCompletionServer.Mode.MALFORMED_JSON);
+
+        MvcResult result = startChatStream();
+        awaitStreamCompletion(result);
+
+        List<String[]> events = sseEvents(result);
+        assertEquals(1, events.stream().filter(event -> "error".equals(event[0])).count());
+        assertEquals("error", events.get(events.size() - 1)[0]);
+        assertTrue(events.get(events.size() - 1)[1].contains("响应数据格式错误"));
+        assertTrue(events.stream().noneMatch(event -> "done".equals(event[0])));
+        assertEquals(0, aiGateway.stats().get("activeStreams"));
+    }
+
+    @Test
+    void streamingReportsUpstreamFailureAsErrorEvent() throws Exception {
+        fake.failNext(1);
+
+        MvcResult result = startChatStream();
+        awaitStreamCompletion(result);
+
+        List<String[]> events = sseEvents(result);
+        assertEquals(1, events.size());
+        assertEquals("error", events.get(0)[0]);
+        assertTrue(events.get(0)[1].contains("HTTP 503"));
+    }
+
+    @Test
+    void streamingStopsUpstreamWhenClientDisconnects() throws Exception {
+        fake.responder(messages -> "token ".repeat(2000)).streamChunkDelay(10);
+
+        MvcResult result = startChatStream();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sseEvents(result).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("delta", sseEvents(result).get(0)[0]);
+
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+        }
+        asyncContext.complete();
+
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (fake.streamsAborted() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, fake.streamsAborted());
+        assertEquals(0, aiGateway.stats().get("activeStreams"));
+        assertTrue(sseEvents(result).stream().noneMatch(event -> "done".equals(event[0])));
+    }
+
+    @Test
+    void generateNoteExtractsUploadedPdf() throws Exception {
+        ConcurrentLinkedQueue<String> received = new ConcurrentLinkedQueue<>();
+        fake.responder(messages -> {
+            received.add(String.valueOf(messages.get(messages.size() - 1).get("content")));
+            return "## Notes\n\n- photosynthesis\n";
+        });
+        byte[] pdf = pdf("Photosynthesis converts light energy", "Chlorophyll absorbs red and blue light");
+        long memoryHits = (long) documentTextExtractor.stats().get("memoryHits");
+
+        ResponseEntity<Map<String, Object>> first = aiController.generateNote(
+                new MockMultipartFile[] {new MockMultipartFile("files", "biology.pdf", "application/pdf", pdf)},
+                "光合作用", "生物").get(30, TimeUnit.SECONDS);
+        ResponseEntity<Map<String, Object>> second = aiController.generateNote(
+                new MockMultipartFile[] {new MockMultipartFile("files", "biology-copy.pdf", "application/pdf", pdf)},
+                "光合作用", "生物").get(30, TimeUnit.SECONDS);
+
+        assertEquals(200, first.getStatusCode().value());
+        assertEquals(200, second.getStatusCode().value());
+        String prompt = received.peek();
+        assertTrue(prompt.contains("--- 文件: biology.pdf ---"));
+        assertTrue(prompt.contains("Photosynthesis converts light energy"));
+        assertTrue(prompt.contains("Chlorophyll absorbs red and blue light"));
+        assertTrue(prompt.indexOf("Photosynthesis") < prompt.indexOf("Chlorophyll"));
+        assertEquals(memoryHits + 1, (long) documentTextExtractor.stats().get("memoryHits"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void generateExamUnderLoad() throws Exception {
+        fake.latency(FakeChatCompletionServer.Latency.logNormal(40, 0.5));
+
+        LoadReport report = runLoad("exams/generate", i -> {
+            Map<String, Object> request = examRequest("负载测试笔记 " + i, true);
+            request.put("noteId", 1);
+            request.put("userId", 1);
+            return examController.generateExam(request);
+        });
+
+        assertEquals(REQUESTS, report.succeeded);
+        assertEquals(REQUESTS, fake.requestCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void generateNoteUnderLoad() throws Exception {
+        fake.latency(FakeChatCompletionServer.Latency.uniform(20, 60));
+        StringBuilder source = new StringBuilder();
+        for (int chapter = 1; chapter <= 4; chapter++) {
+            source.append("第").append(chapter).append("章 负载测试\n");
+            for (int line = 0; line < 60; line++) {
+                source.append("这一行是用于切分测试的正文内容，编号 ").append(line).append("。\n");
+            }
+        }
+        byte[] bytes = source.toString().getBytes(StandardCharsets.UTF_8);
+
+        LoadReport report = runLoad("ai/generate-note", i -> aiController.generateNote(
+                new MockMultipartFile[] {new MockMultipartFile("files", "lecture-" + i + ".txt", "text/plain", bytes)},
+                "负载测试 " + i, "测试"));
+
+        assertEquals(REQUESTS, report.succeeded);
+        assertTrue(fake.requestCount() > REQUESTS, "large notes should go through map-reduce");
+    }
+
+    private MvcResult startChatStream() throws Exception {
+        return mockMvc.perform(post("/api/ai/chat/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"messages\":[{\"role\":\"user\",\"content\":\"hello\"}]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static void awaitStreamCompletion(MvcResult result) {
+        result.getAsyncResult(30_000);
+        result.getRequest().getAsyncContext().complete();
+    }
+
+    private static List<String[]> sseEvents(MvcResult result) throws IOException {
+        List<String[]> events = new ArrayList<>();
+        for (String block : result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n\n")) {
+            String name = null;
+            StringBuilder data = new StringBuilder();
+            for (String line : block.split("\n")) {
+                if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    data.append(line.substring(5));
+                }
+            }
+            if (name != null) {
+                events.add(new String[] {name, data.toString()});
+            }
+        }
+        return events;
+    }
+
+    private static byte[] pdf(String... pages) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (String text : pages) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                    content.newLineAtOffset(72, 720);
+                    content.showText(text);
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private Map<String, Object> examRequest(String noteContent, boolean bypassCache) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("noteContent", noteContent);
+        request.put("questionCount", 3);
+        request.put("difficulty", "medium");
+        request.put("selectedTypes", Arrays.asList("single", "true-false", "open"));
+        request.put("bypassCache", bypassCache);
+        return request;
+    }
+
+    private LoadReport runLoad(String name, IntFunction<CompletableFuture<ResponseEntity<Map<String, Object>>>> call)
+            throws InterruptedException {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService drivers = Executors.newFixedThreadPool(CONCURRENCY);
+        long start = System.nanoTime();
+        for (int d = 0; d < CONCURRENCY; d++) {
+            drivers.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < REQUESTS) {
+                    long begin = System.nanoTime();
+                    try {
+                        ResponseEntity<Map<String, Object>> response = call.apply(i).get(60, TimeUnit.SECONDS);
+                        if (response.getStatusCode().is2xxSuccessful()) {
+                            succeeded.incrementAndGet();
+                        }
+                    } catch (Exception ignored) {
+                    }
+                    latencies.add(System.nanoTime() - begin);
+                }
+            });
+        }
+        drivers.shutdown();
+        drivers.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        LoadReport report = new LoadReport(succeeded.get(),
+                REQUESTS / (elapsed / 1e9),
+                percentileMillis(sorted, 0.50),
+                percentileMillis(sorted, 0.99));
+        log.info(String.format("[load] %s: %d/%d ok, %d concurrent, %.1f req/s, p50 %.1f ms, p99 %.1f ms, %d upstream calls",
+                name, report.succeeded, REQUESTS, CONCURRENCY, report.throughput, report.p50Millis, report.p99Millis,
+                fake.requestCount()));
+        return report;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private record LoadReport(int succeeded, double throughput, double p50Millis, double p99Millis) {
+    }
+}
+
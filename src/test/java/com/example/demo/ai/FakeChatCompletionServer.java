@@ -0,0 +1,268 @@
+package com.example.demo.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class FakeChatCompletionServer implements AutoCloseable {
+
+    public enum Mode { NORMAL, TRUNCATED, MALFORMED_JSON, UNAUTHORIZED }
+
+    public interface Latency {
+        long nextMillis();
+
+        static Latency none() {
+            return () -> 0;
+        }
+
+        static Latency fixed(long millis) {
+            return () -> millis;
+        }
+
+        static Latency uniform(long minMillis, long maxMillis) {
+            return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+        }
+
+        static Latency logNormal(double medianMillis, double sigma) {
+            return () -> Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failuresInjected = new AtomicLong();
+    private final AtomicLong streamsAborted = new AtomicLong();
+    private final AtomicInteger failNext = new AtomicInteger();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private volatile Mode mode = Mode.NORMAL;
+    private volatile Latency latency = Latency.none();
+    private volatile double errorRate;
+    private volatile long streamChunkDelayMillis = 5;
+    private volatile Function<List<Map<String, Object>>, String> responder = FakeChatCompletionServer::defaultResponse;
+
+    public FakeChatCompletionServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-llm");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public FakeChatCompletionServer mode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public FakeChatCompletionServer latency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public FakeChatCompletionServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public FakeChatCompletionServer failNext(int requests) {
+        failNext.set(requests);
+        return this;
+    }
+
+    public FakeChatCompletionServer streamChunkDelay(long millis) {
+        this.streamChunkDelayMillis = millis;
+        return this;
+    }
+
+    public FakeChatCompletionServer responder(Function<List<Map<String, Object>>, String> responder) {
+        this.responder = responder;
+        return this;
+    }
+
+    public FakeChatCompletionServer reset() {
+        mode = Mode.NORMAL;
+        latency = Latency.none();
+        errorRate = 0;
+        failNext.set(0);
+        streamChunkDelayMillis = 5;
+        responder = FakeChatCompletionServer::defaultResponse;
+        requests.set(0);
+        failuresInjected.set(0);
+        streamsAborted.set(0);
+        return this;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long failuresInjected() {
+        return failuresInjected.get();
+    }
+
+    public long streamsAborted() {
+        return streamsAborted.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"error\":{\"message\":\"method not allowed\"}}");
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> messages = (List<Map<String, Object>>) request.get("messages");
+
+            sleep(latency.nextMillis());
+            if (mode == Mode.UNAUTHORIZED) {
+                send(exchange, 401, "{\"error\":{\"message\":\"Authentication Fails\",\"type\":\"authentication_error\"}}");
+                return;
+            }
+            if (failNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0
+                    || errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                failuresInjected.incrementAndGet();
+                send(exchange, 503, "{\"error\":{\"message\":\"injected failure\",\"type\":\"server_error\"}}");
+                return;
+            }
+
+            String content = responder.apply(messages);
+            String finishReason = "stop";
+            if (mode == Mode.TRUNCATED) {
+                content = content.substring(0, content.length() / 2);
+                finishReason = "length";
+            }
+
+            if (Boolean.TRUE.equals(request.get("stream"))) {
+                try {
+                    stream(exchange, content, finishReason);
+                } catch (IOException e) {
+                    streamsAborted.incrementAndGet();
+                }
+                return;
+            }
+            if (mode == Mode.MALFORMED_JSON) {
+                send(exchange, 200, "{\"id\":\"chatcmpl-fake\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":");
+                return;
+            }
+
+            Map<String, Object> message = new HashMap<>();
+            message.put("role", "assistant");
+            message.put("content", content);
+            Map<String, Object> choice = new HashMap<>();
+            choice.put("index", 0);
+            choice.put("message", message);
+            choice.put("finish_reason", finishReason);
+            Map<String, Object> body = new HashMap<>();
+            body.put("id", "chatcmpl-fake-" + requests.get());
+            body.put("object", "chat.completion");
+            body.put("created", System.currentTimeMillis() / 1000);
+            body.put("model", request.getOrDefault("model", "deepseek-chat"));
+            body.put("choices", List.of(choice));
+            body.put("usage", Map.of("prompt_tokens", 0, "completion_tokens", content.length(), "total_tokens", content.length()));
+            send(exchange, 200, objectMapper.writeValueAsString(body));
+        }
+    }
+
+    private void stream(HttpExchange exchange, String content, String finishReason) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (String token : tokens(content)) {
+            Map<String, Object> choice = new HashMap<>();
+            choice.put("index", 0);
+            choice.put("delta", Map.of("content", token));
+            choice.put("finish_reason", null);
+            writeEvent(out, objectMapper.writeValueAsString(Map.of("choices", List.of(choice))));
+            sleep(streamChunkDelayMillis);
+        }
+        if (mode == Mode.MALFORMED_JSON) {
+            writeEvent(out, "{\"choices\":[{\"delta\":");
+        }
+        Map<String, Object> last = new HashMap<>();
+        last.put("index", 0);
+        last.put("delta", Map.of());
+        last.put("finish_reason", finishReason);
+        writeEvent(out, objectMapper.writeValueAsString(Map.of("choices", List.of(last))));
+        writeEvent(out, "[DONE]");
+    }
+
+    private void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static List<String> tokens(String content) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < content.length(); i += 8) {
+            tokens.add(content.substring(i, Math.min(content.length(), i + 8)));
+        }
+        return tokens;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String defaultResponse(List<Map<String, Object>> messages) {
+        String system = messages.isEmpty() ? "" : String.valueOf(messages.get(0).get("content"));
+        if (system.contains("exam designer")) {
+            return "{\"questions\":["
+                    + "{\"type\":\"single\",\"question\":\"What is 1 + 1?\",\"options\":[\"1\",\"2\",\"3\",\"4\"],\"correctAnswer\":\"B\",\"points\":5,\"explanation\":\"Basic addition.\"},"
+                    + "{\"type\":\"true-false\",\"question\":\"The sky is blue.\",\"correctAnswer\":\"true\",\"points\":5,\"explanation\":\"Rayleigh scattering.\"},"
+                    + "{\"type\":\"open\",\"question\":\"Explain recursion.\",\"correctAnswer\":\"A function calling itself.\",\"points\":10,\"explanation\":\"\"}"
+                    + "]}";
+        }
+        if (system.contains("exam grader")) {
+            return "{\"scores\":[]}";
+        }
+        return "## Notes\n\n- **Key point**: generated by the local stand-in server.\n";
+    }
+}
+
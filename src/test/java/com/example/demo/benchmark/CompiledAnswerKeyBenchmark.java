@@ -0,0 +1,112 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.Question;
+import com.example.demo.service.CompiledAnswerKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledAnswerKeyBenchmark {
+
+    private static final String[] CHOICES = {"A", "B", "C", "D"};
+
+    @Param({"10", "40", "200"})
+    private int questionCount;
+
+    private List<Question> questions;
+    private Map<Long, String> answers;
+    private CompiledAnswerKey answerKey;
+
+    @Setup
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        questions = new ArrayList<>(questionCount);
+        answers = new HashMap<>();
+        for (int i = 0; i < questionCount; i++) {
+            Question q = new Question();
+            q.setId(10_000L + i * 7L);
+            q.setPoints(5);
+            if (i % 10 == 9) {
+                q.setType("open_question");
+                q.setCorrectAnswer("Reference answer for question " + i);
+                answers.put(q.getId(), "My answer " + i);
+            } else {
+                q.setType(i % 3 == 0 ? "true_false" : "single_choice");
+                q.setCorrectAnswer(" " + CHOICES[i % 4] + " ");
+                answers.put(q.getId(), random.nextBoolean() ? CHOICES[i % 4].toLowerCase() : CHOICES[(i + 1) % 4]);
+            }
+            questions.add(q);
+        }
+        answerKey = CompiledAnswerKey.compile(questions);
+    }
+
+    @Benchmark
+    public int legacyGrading() {
+        int totalScore = 0;
+        int maxScore = 0;
+        for (Question q : questions) {
+            if (q.getType().equals("open_question") || q.getType().equals("open question")) {
+                continue;
+            }
+            maxScore += q.getPoints();
+            String userAnswer = answers.get(q.getId());
+            if (userAnswer != null && userAnswer.trim().equalsIgnoreCase(q.getCorrectAnswer().trim())) {
+                totalScore += q.getPoints();
+            }
+        }
+
+        int rowScores = 0;
+        for (Map.Entry<Long, String> entry : answers.entrySet()) {
+            Question q = questions.stream()
+                .filter(question -> question.getId().equals(entry.getKey()))
+                .findFirst()
+                .orElse(null);
+            if (q != null && !q.getType().equals("open_question") && !q.getType().equals("open question")) {
+                if (entry.getValue() != null && entry.getValue().trim().equalsIgnoreCase(q.getCorrectAnswer().trim())) {
+                    rowScores += q.getPoints();
+                }
+            }
+        }
+        return totalScore + maxScore + rowScores;
+    }
+
+    @Benchmark
+    public int compiledKeyGrading() {
+        int totalScore = 0;
+        for (Map.Entry<Long, String> entry : answers.entrySet()) {
+            totalScore += answerKey.score(answerKey.indexOf(entry.getKey()), entry.getValue());
+        }
+        return totalScore + answerKey.maxScore() + totalScore;
+    }
+
+    @Benchmark
+    public int compileAndGrade() {
+        CompiledAnswerKey key = CompiledAnswerKey.compile(questions);
+        int totalScore = 0;
+        for (Map.Entry<Long, String> entry : answers.entrySet()) {
+            totalScore += key.score(key.indexOf(entry.getKey()), entry.getValue());
+        }
+        return totalScore + key.maxScore();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.ExamAnswer;
+import com.example.demo.mapper.ExamAnswerMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submit latency against question count, old per-question writes vs. batch upsert.
+ * Needs a MySQL database with the project schema: BENCH_JDBC_URL (defaults to the local demo2 database)
+ * and MYSQL_PASSWORD. Each invocation rolls back, so the database is left as it was.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubmitAnswersBenchmark {
+
+    private static final int ANSWER_BATCH_SIZE = 500;
+
+    @Param({"10", "40", "100"})
+    private int questionCount;
+
+    private HikariDataSource dataSource;
+    private SqlSessionFactory sessionFactory;
+    private long userId;
+    private long examId;
+    private final List<Long> questionIds = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(env("BENCH_JDBC_URL",
+                "jdbc:mysql://localhost:3306/demo2?useUnicode=true&characterEncoding=utf8&useSSL=false&serverTimezone=Asia/Shanghai"));
+        dataSource.setUsername(env("BENCH_JDBC_USERNAME", "root"));
+        dataSource.setPassword(env("MYSQL_PASSWORD", ""));
+        dataSource.setMaximumPoolSize(2);
+
+        Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.getTypeAliasRegistry().registerAliases("com.example.demo.entity");
+        String resource = "mapper/ExamAnswerMapper.xml";
+        try (InputStream in = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        sessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        try (Connection connection = dataSource.getConnection()) {
+            String suffix = Long.toString(System.nanoTime(), 36);
+            userId = insert(connection, "INSERT INTO users (username, password, create_time, update_time) VALUES ('bench_" + suffix + "', 'x', NOW(), NOW())");
+            long subjectId = insert(connection, "INSERT INTO subjects (name, user_id, create_time, update_time) VALUES ('bench', " + userId + ", NOW(), NOW())");
+            long noteId = insert(connection, "INSERT INTO notes (title, subject_id, user_id, create_time, update_time) VALUES ('bench', " + subjectId + ", " + userId + ", NOW(), NOW())");
+            examId = insert(connection, "INSERT INTO exams (title, note_id, user_id, total_questions, create_time, update_time) VALUES ('bench', " + noteId + ", " + userId + ", " + questionCount + ", NOW(), NOW())");
+            for (int i = 0; i < questionCount; i++) {
+                questionIds.add(insert(connection, "INSERT INTO questions (exam_id, title, type, points, correct_answer) VALUES (" + examId + ", 'q" + i + "', 'single', 5, 'A')"));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM users WHERE id = " + userId);
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int perQuestionWrites() {
+        try (SqlSession session = sessionFactory.openSession(false)) {
+            ExamAnswerMapper mapper = session.getMapper(ExamAnswerMapper.class);
+            LocalDateTime submitTime = LocalDateTime.now();
+            int written = 0;
+            for (Long questionId : questionIds) {
+                ExamAnswer existing = mapper.findByExamIdAndUserIdAndQuestionId(examId, userId, questionId);
+                if (existing != null) {
+                    existing.setAnswer("A");
+                    existing.setScore(5);
+                    existing.setSubmitTime(submitTime);
+                    written += mapper.update(existing);
+                } else {
+                    written += mapper.insert(answer(questionId, submitTime));
+                }
+            }
+            session.rollback(true);
+            return written;
+        }
+    }
+
+    @Benchmark
+    public int batchUpsert() {
+        try (SqlSession session = sessionFactory.openSession(false)) {
+            ExamAnswerMapper mapper = session.getMapper(ExamAnswerMapper.class);
+            LocalDateTime submitTime = LocalDateTime.now();
+            List<ExamAnswer> rows = new ArrayList<>(questionIds.size());
+            for (Long questionId : questionIds) {
+                rows.add(answer(questionId, submitTime));
+            }
+            int written = 0;
+            for (int from = 0; from < rows.size(); from += ANSWER_BATCH_SIZE) {
+                written += mapper.batchUpsert(rows.subList(from, Math.min(from + ANSWER_BATCH_SIZE, rows.size())));
+            }
+            session.rollback(true);
+            return written;
+        }
+    }
+
+    private ExamAnswer answer(Long questionId, LocalDateTime submitTime) {
+        ExamAnswer answer = new ExamAnswer();
+        answer.setExamId(examId);
+        answer.setUserId(userId);
+        answer.setQuestionId(questionId);
+        answer.setAnswer("A");
+        answer.setScore(5);
+        answer.setSubmitTime(submitTime);
+        return answer;
+    }
+
+    private static long insert(Connection connection, String sql) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.ExamAnswer;
+import com.example.demo.mapper.ExamAnswerMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class AnswerDraftBufferTest {
+
+    private static final long EXAM_ID = 1L;
+    private static final long USER_ID = 7L;
+
+    @TempDir
+    Path dir;
+
+    private final List<AnswerDraftBuffer> started = new ArrayList<>();
+    private final List<ExamAnswer> upserted = new ArrayList<>();
+    private ExamAnswerMapper examAnswerMapper;
+
+    @BeforeEach
+    void setUp() {
+        examAnswerMapper = mock(ExamAnswerMapper.class);
+        doAnswer(invocation -> {
+            upserted.addAll(invocation.getArgument(0));
+            return 1;
+        }).when(examAnswerMapper).batchUpsert(anyList());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AnswerDraftBuffer buffer : started) {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    void replaysUnflushedJournalOnRestart() throws Exception {
+        AnswerDraftBuffer first = start(dir.resolve("a"));
+        first.put(EXAM_ID, USER_ID, Map.of(11L, "A"), LocalDateTime.now());
+        first.put(EXAM_ID, USER_ID, Map.of(11L, "C", 12L, "B"), LocalDateTime.now());
+        first.put(2L, USER_ID, Map.of(21L, "D"), LocalDateTime.now());
+        first.discard(2L, USER_ID);
+
+        Path crashed = Files.createDirectories(dir.resolve("b"));
+        Files.copy(dir.resolve("a").resolve("drafts.journal"), crashed.resolve("drafts.journal"));
+        AnswerDraftBuffer restarted = start(crashed);
+
+        assertTrue(Files.exists(crashed.resolve("drafts.journal.flushing")));
+        assertEquals(Map.of(11L, "C", 12L, "B"), answers(restarted.overlay(EXAM_ID, USER_ID, List.of())));
+        assertTrue(restarted.overlay(2L, USER_ID, List.of()).isEmpty());
+        assertEquals(1, restarted.stats().get("flushingDrafts"));
+
+        restarted.flush();
+
+        assertEquals(Map.of(11L, "C", 12L, "B"), answers(upserted));
+        assertFalse(Files.exists(crashed.resolve("drafts.journal.flushing")));
+        assertEquals(0, restarted.stats().get("flushingDrafts"));
+    }
+
+    @Test
+    void flushRotatesJournalAndKeepsDraftsVisible() throws Exception {
+        CountDownLatch upserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockUpserts(upserting, release);
+        AnswerDraftBuffer buffer = start(dir);
+        buffer.put(EXAM_ID, USER_ID, Map.of(11L, "A"), LocalDateTime.now());
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(this.flush(buffer));
+        assertTrue(upserting.await(5, TimeUnit.SECONDS));
+
+        assertTrue(Files.exists(dir.resolve("drafts.journal.flushing")));
+        assertEquals(0, Files.size(dir.resolve("drafts.journal")));
+        assertEquals(Map.of(11L, "A"), answers(buffer.overlay(EXAM_ID, USER_ID, List.of())));
+        buffer.put(EXAM_ID, USER_ID, Map.of(12L, "B"), LocalDateTime.now());
+        assertEquals(Map.of(11L, "A", 12L, "B"), answers(buffer.overlay(EXAM_ID, USER_ID, List.of())));
+        assertTrue(Files.readString(dir.resolve("drafts.journal"), StandardCharsets.UTF_8).contains("\"12\":\"B\""));
+
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+
+        assertFalse(Files.exists(dir.resolve("drafts.journal.flushing")));
+        assertEquals(0, buffer.stats().get("flushingDrafts"));
+        assertEquals(1, buffer.stats().get("bufferedDrafts"));
+    }
+
+    @Test
+    void discardDuringFlushDeletesFlushedDrafts() throws Exception {
+        CountDownLatch upserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockUpserts(upserting, release);
+        AnswerDraftBuffer buffer = start(dir);
+        buffer.put(EXAM_ID, USER_ID, Map.of(11L, "A"), LocalDateTime.now());
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(this.flush(buffer));
+        assertTrue(upserting.await(5, TimeUnit.SECONDS));
+        buffer.discard(EXAM_ID, USER_ID);
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+
+        verify(examAnswerMapper).deleteDraftsByExamIdAndUserId(eq(EXAM_ID), eq(USER_ID), isNull());
+        assertTrue(buffer.overlay(EXAM_ID, USER_ID, List.of()).isEmpty());
+        assertEquals(0, buffer.stats().get("flushingDrafts"));
+
+        Path crashed = Files.createDirectories(dir.resolve("after-discard"));
+        Files.copy(dir.resolve("drafts.journal"), crashed.resolve("drafts.journal"));
+        assertTrue(start(crashed).overlay(EXAM_ID, USER_ID, List.of()).isEmpty());
+    }
+
+    private AnswerDraftBuffer start(Path journalDir) throws Exception {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        AnswerDraftBuffer buffer = new AnswerDraftBuffer();
+        ReflectionTestUtils.setField(buffer, "examAnswerMapper", examAnswerMapper);
+        ReflectionTestUtils.setField(buffer, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(buffer, "journalDir", journalDir.toString());
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(buffer, "maxAnswers", 10_000);
+        ReflectionTestUtils.setField(buffer, "fsync", true);
+        buffer.start();
+        started.add(buffer);
+        return buffer;
+    }
+
+    private void blockUpserts(CountDownLatch upserting, CountDownLatch release) {
+        doAnswer(invocation -> {
+            upserting.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            upserted.addAll(invocation.getArgument(0));
+            return 1;
+        }).when(examAnswerMapper).batchUpsert(anyList());
+    }
+
+    private Runnable flush(AnswerDraftBuffer buffer) {
+        return () -> {
+            try {
+                buffer.flush();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static Map<Long, String> answers(List<ExamAnswer> rows) {
+        Map<Long, String> answers = new TreeMap<>();
+        for (ExamAnswer row : rows) {
+            answers.put(row.getQuestionId(), row.getAnswer());
+        }
+        return answers;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Exam;
+import com.example.demo.entity.ExamAttempt;
+import com.example.demo.entity.ExamSM2Stats;
+import com.example.demo.entity.Question;
+import com.example.demo.mapper.ExamAnswerMapper;
+import com.example.demo.mapper.ExamAttemptMapper;
+import com.example.demo.mapper.ExamMapper;
+import com.example.demo.mapper.ExamSM2StatsMapper;
+import com.example.demo.mapper.ExamScoreStatsMapper;
+import com.example.demo.mapper.QuestionItemStatsMapper;
+import com.example.demo.mapper.QuestionMapper;
+import com.example.demo.mapper.QuestionSM2StatsMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ExamServiceImplSubmitTest {
+
+    private static final long EXAM_ID = 1L;
+    private static final long USER_ID = 7L;
+
+    @Mock
+    private ExamMapper examMapper;
+    @Mock
+    private QuestionMapper questionMapper;
+    @Mock
+    private ExamAnswerMapper examAnswerMapper;
+    @Mock
+    private ExamAttemptMapper examAttemptMapper;
+    @Mock
+    private ExamSM2StatsMapper examSM2StatsMapper;
+    @Mock
+    private QuestionSM2StatsMapper questionSM2StatsMapper;
+    @Mock
+    private OpenAnswerGradingService openAnswerGradingService;
+    @Mock
+    private ExamScoreStatsMapper examScoreStatsMapper;
+    @Mock
+    private QuestionItemStatsMapper questionItemStatsMapper;
+    @Mock
+    private AnswerDraftBuffer answerDraftBuffer;
+
+    @InjectMocks
+    private ExamServiceImpl examService;
+
+    private final Map<String, ExamAttempt> attemptsByKey = new ConcurrentHashMap<>();
+    private final AtomicLong attemptIds = new AtomicLong(100);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(examService, "questionCacheMaxSize", 10);
+        examService.initCaches();
+
+        Exam exam = new Exam();
+        exam.setId(EXAM_ID);
+        when(examMapper.findById(EXAM_ID)).thenReturn(exam);
+        when(questionMapper.findByExamId(EXAM_ID)).thenReturn(new ArrayList<>(List.of(
+                question(11L, "A"), question(12L, "B"))));
+
+        when(examAttemptMapper.findByUserIdAndIdempotencyKey(anyLong(), anyString()))
+                .thenAnswer(invocation -> attemptsByKey.get(invocation.getArgument(0) + ":" + invocation.getArgument(1)));
+        doAnswer(invocation -> {
+            ExamAttempt attempt = invocation.getArgument(0);
+            String key = attempt.getUserId() + ":" + attempt.getIdempotencyKey();
+            attempt.setId(attemptIds.incrementAndGet());
+            if (attemptsByKey.putIfAbsent(key, attempt) != null) {
+                throw new DuplicateKeyException("uk_user_idempotency");
+            }
+            return 1;
+        }).when(examAttemptMapper).insert(any(ExamAttempt.class));
+    }
+
+    @Test
+    void sameKeySubmittedTwiceReturnsOneAttempt() {
+        Map<String, Object> first = examService.submitExam(EXAM_ID, USER_ID, Map.of(11L, "A", 12L, "C"), null, "key-1");
+        Map<String, Object> second = examService.submitExam(EXAM_ID, USER_ID, Map.of(11L, "A", 12L, "B"), null, "key-1");
+
+        assertEquals(first.get("attemptId"), second.get("attemptId"));
+        assertEquals(true, second.get("duplicate"));
+        assertEquals(5, second.get("totalScore"));
+        verify(examAttemptMapper, times(1)).insert(any(ExamAttempt.class));
+        verify(examScoreStatsMapper, times(1)).applyDelta(eq(EXAM_ID), anyInt(), any(Double.class), any(Double.class), any());
+    }
+
+    @Test
+    void concurrentSubmitsWithSameKeyReturnOneAttempt() throws Exception {
+        CyclicBarrier bothLookedUp = new CyclicBarrier(2);
+        AtomicInteger lookups = new AtomicInteger();
+        when(examAttemptMapper.findByUserIdAndIdempotencyKey(anyLong(), anyString())).thenAnswer(invocation -> {
+            ExamAttempt found = attemptsByKey.get(invocation.getArgument(0) + ":" + invocation.getArgument(1));
+            if (lookups.incrementAndGet() <= 2) {
+                bothLookedUp.await(5, TimeUnit.SECONDS);
+            }
+            return found;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, Object>> a = pool.submit(() ->
+                    examService.submitExam(EXAM_ID, USER_ID, Map.of(11L, "A", 12L, "B"), null, "key-2"));
+            Future<Map<String, Object>> b = pool.submit(() ->
+                    examService.submitExam(EXAM_ID, USER_ID, Map.of(11L, "A", 12L, "B"), null, "key-2"));
+            Map<String, Object> first = a.get(10, TimeUnit.SECONDS);
+            Map<String, Object> second = b.get(10, TimeUnit.SECONDS);
+
+            assertEquals(first.get("attemptId"), second.get("attemptId"));
+            assertTrue(Boolean.TRUE.equals(first.get("duplicate")) ^ Boolean.TRUE.equals(second.get("duplicate")));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, attemptsByKey.size());
+        verify(examAttemptMapper, times(2)).insert(any(ExamAttempt.class));
+        verify(examAnswerMapper, times(1)).batchUpsert(any());
+        verify(examScoreStatsMapper, times(1)).applyDelta(eq(EXAM_ID), anyInt(), any(Double.class), any(Double.class), any());
+    }
+
+    @Test
+    void staleVersionRetriesSm2Update() {
+        when(examSM2StatsMapper.findByExamIdAndUserId(EXAM_ID, USER_ID))
+                .thenAnswer(invocation -> sm2Stats(3))
+                .thenAnswer(invocation -> sm2Stats(4));
+        when(examSM2StatsMapper.update(any(ExamSM2Stats.class))).thenReturn(0).thenReturn(1);
+
+        examService.submitExam(EXAM_ID, USER_ID, Map.of(11L, "A", 12L, "B"), null, "key-3");
+
+        verify(examSM2StatsMapper, times(2)).findByExamIdAndUserId(EXAM_ID, USER_ID);
+        verify(examSM2StatsMapper, times(2)).update(any(ExamSM2Stats.class));
+        verify(examSM2StatsMapper, never()).insert(any(ExamSM2Stats.class));
+    }
+
+    @Test
+    void concurrentFirstInsertFallsBackToUpdate() {
+        when(examSM2StatsMapper.findByExamIdAndUserId(EXAM_ID, USER_ID))
+                .thenReturn(null)
+                .thenAnswer(invocation -> sm2Stats(0));
+        when(examSM2StatsMapper.insert(any(ExamSM2Stats.class))).thenThrow(new DuplicateKeyException("uk_exam_user"));
+        when(examSM2StatsMapper.update(any(ExamSM2Stats.class))).thenReturn(1);
+
+        examService.submitExam(EXAM_ID, USER_ID, Map.of(11L, "A"), null, "key-4");
+
+        verify(examSM2StatsMapper, times(1)).insert(any(ExamSM2Stats.class));
+        verify(examSM2StatsMapper, times(1)).update(any(ExamSM2Stats.class));
+    }
+
+    @Test
+    void sm2UpdateGivesUpAfterMaxRetries() {
+        when(examSM2StatsMapper.findByExamIdAndUserId(EXAM_ID, USER_ID)).thenAnswer(invocation -> sm2Stats(1));
+        when(examSM2StatsMapper.update(any(ExamSM2Stats.class))).thenReturn(0);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+                examService.submitExam(EXAM_ID, USER_ID, Map.of(11L, "A"), null, "key-5"));
+
+        assertEquals("复习统计更新冲突，请重试", e.getMessage());
+        verify(examSM2StatsMapper, times(5)).update(any(ExamSM2Stats.class));
+    }
+
+    private static Question question(Long id, String correctAnswer) {
+        Question q = new Question();
+        q.setId(id);
+        q.setExamId(EXAM_ID);
+        q.setType("single");
+        q.setPoints(5);
+        q.setCorrectAnswer(correctAnswer);
+        return q;
+    }
+
+    private static ExamSM2Stats sm2Stats(int version) {
+        ExamSM2Stats stats = new ExamSM2Stats();
+        stats.setId(50L);
+        stats.setExamId(EXAM_ID);
+        stats.setUserId(USER_ID);
+        stats.setEaseFactor(BigDecimal.valueOf(2.5));
+        stats.setIntervalDays(1);
+        stats.setAttemptCount(version);
+        stats.setLastSubmitTime(LocalDateTime.now().minusDays(1));
+        stats.setVersion(version);
+        return stats;
+    }
+}